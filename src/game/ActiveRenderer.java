@@ -0,0 +1,135 @@
+package game;
+
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Optional render loop that draws the game into the frame's
+ *          BufferStrategy at a fixed rate instead of waiting on Swing repaints
+ */
+
+class ActiveRenderer implements Runnable {
+
+    // How often the frame timing summary is printed
+    private static final long REPORT_INTERVAL = 5_000_000_000L;
+
+    private final JFrame frame;
+    private final Tetris view;
+    private final long framePeriod;
+    private volatile boolean running = true;
+
+    // Frame timing since the last report, in nanoseconds
+    private int frames = 0;
+    private long renderTotal = 0;
+    private long renderMax = 0;
+    private long intervalMax = 0;
+    private long lastFrameStart = 0;
+
+    // A targetFps of 0 renders as fast as the buffer flips allow
+    ActiveRenderer(JFrame frame, Tetris view, int targetFps) {
+        this.frame = frame;
+        this.view = view;
+        this.framePeriod = targetFps > 0 ? 1_000_000_000L / targetFps : 0;
+    }
+
+    // Must be called after the frame is visible
+    void start() {
+
+        frame.setIgnoreRepaint(true);
+        view.setIgnoreRepaint(true);
+        view.setActiveRendering(true);
+        frame.createBufferStrategy(2);
+
+        Thread renderLoop = new Thread(this, "renderLoop");
+        renderLoop.setDaemon(true);
+        renderLoop.start();
+
+    }//end method start
+
+    void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+
+        BufferStrategy strategy = frame.getBufferStrategy();
+        long nextFrame = System.nanoTime();
+        long reportStart = nextFrame;
+
+        while (running) {
+            long start = System.nanoTime();
+            renderFrame(strategy);
+            long end = System.nanoTime();
+            recordFrame(start, end);
+
+            if (end - reportStart >= REPORT_INTERVAL) {
+                reportFrames(end - reportStart);
+                reportStart = end;
+            }
+
+            if (framePeriod > 0) {
+                nextFrame += framePeriod;
+                long wait = nextFrame - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                else {
+                    // Fell behind, start pacing again from now rather than rushing to catch up
+                    nextFrame = System.nanoTime();
+                }
+            }
+        }
+
+    }//end method run
+
+    private void renderFrame(BufferStrategy strategy) {
+
+        do {
+            do {
+                Graphics2D g2 = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    Point origin = SwingUtilities.convertPoint(view, 0, 0, frame);
+                    g2.translate(origin.x, origin.y);
+                    g2.clipRect(0, 0, view.getWidth(), view.getHeight());
+                    view.paintComponent(g2);
+                } finally {
+                    g2.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+
+    }//end method renderFrame
+
+    private void recordFrame(long start, long end) {
+
+        if (lastFrameStart != 0) {
+            intervalMax = Math.max(intervalMax, start - lastFrameStart);
+        }
+        lastFrameStart = start;
+        frames++;
+        renderTotal += end - start;
+        renderMax = Math.max(renderMax, end - start);
+
+    }//end method recordFrame
+
+    private void reportFrames(long elapsed) {
+
+        System.out.printf("render: %.1f fps, frame avg %.2f ms, max %.2f ms, worst gap %.2f ms%n",
+            frames * 1e9 / elapsed, renderTotal / 1e6 / Math.max(frames, 1),
+            renderMax / 1e6, intervalMax / 1e6);
+        frames = 0;
+        renderTotal = 0;
+        renderMax = 0;
+        intervalMax = 0;
+
+    }//end method reportFrames
+
+}//end class ActiveRenderer
@@ -0,0 +1,271 @@
+package game;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Keep one audio line open for the whole game and feed it from a
+ *          ring buffer on a dedicated thread, with tones read from a wavetable
+ *          and short sound effects mixed over the music
+ */
+
+class AudioEngine implements Runnable {
+
+    static final float SAMPLE_RATE = 22050f;
+
+    // Frames handed to the line per write, about 12 ms, which bounds sound effect latency
+    private static final int CHUNK = 256;
+
+    // Chunks the line buffers ahead of what is playing
+    private static final int LINE_CHUNKS = 3;
+
+    // Music queued ahead of the line, about 190 ms, must be a power of two
+    private static final int RING_SIZE = 4096;
+
+    // One cycle of a sine wave, indexed by the top TABLE_BITS of a 32-bit phase
+    private static final int TABLE_BITS = 10;
+    private static final short[] SINE = new short[1 << TABLE_BITS];
+    private static final int AMPLITUDE = 8000;
+
+    // Length of the fade at each end of a note, about 4 ms
+    private static final int EDGE = 88;
+
+    static {
+        for (int i = 0; i < SINE.length; i++) {
+            SINE[i] = (short) Math.round(Math.sin(2.0 * Math.PI * i / SINE.length) * AMPLITUDE);
+        }
+    }
+
+    // Sound effects, each rendered once from a run of {hz, msecs} notes
+    enum Effect {
+        LOCK(new int[][] {{220, 40}}),
+        SINGLE(new int[][] {{660, 60}}),
+        DOUBLE(new int[][] {{660, 60}, {880, 60}}),
+        TRIPLE(new int[][] {{660, 60}, {880, 60}, {1046, 60}}),
+        TETRIS(new int[][] {{660, 60}, {880, 60}, {1046, 60}, {1318, 120}}),
+        LEVEL_UP(new int[][] {{523, 70}, {659, 70}, {784, 70}, {1046, 70}, {1318, 140}});
+
+        private final short[] samples;
+
+        Effect(int[][] notes) {
+            int total = 0;
+            for (int[] n : notes) {
+                total += Math.round(n[1] * SAMPLE_RATE / 1000);
+            }
+            samples = new short[total];
+            int off = 0;
+            for (int[] n : notes) {
+                int len = Math.round(n[1] * SAMPLE_RATE / 1000);
+                synthesize(samples, off, len, n[0]);
+                off += len;
+            }
+        }
+    }
+
+    // Effects playing at once, the oldest is cut off when a new one needs its voice
+    private static final int VOICES = 4;
+
+    // Samples written by the music thread and read by the feeder thread
+    private final short[] ring = new short[RING_SIZE];
+    private volatile long writePos = 0;
+    private volatile long readPos = 0;
+
+    // One bit per Effect ordinal, set by the game and collected by the feeder each chunk
+    private final AtomicInteger pendingEffects = new AtomicInteger();
+
+    // Voice pool, only touched by the feeder thread
+    private final Effect[] effects = Effect.values();
+    private final Effect[] voiceEffect = new Effect[VOICES];
+    private final int[] voicePos = new int[VOICES];
+
+    private volatile boolean muted = true;
+    private volatile boolean unavailable = false;
+    private SourceDataLine line;
+    private volatile Thread feeder;
+
+    // Opens the line and starts the feeder thread the first time it is called
+    synchronized void start() {
+
+        if (feeder != null || unavailable) {
+            return;
+        }
+        AudioFormat af =
+            new AudioFormat(
+                SAMPLE_RATE,      // sampleRate
+                16, // sampleSizeInBits
+                1,       // channels
+                true,      // signed
+                false);  // bigEndian
+        try {
+            line = AudioSystem.getSourceDataLine(af);
+            line.open(af, CHUNK * LINE_CHUNKS * 2);
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            // No sound device, the game runs silent
+            unavailable = true;
+            return;
+        }
+
+        feeder = new Thread(this, "audioFeeder");
+        feeder.setDaemon(true);
+        feeder.start();
+
+    }//end method start
+
+    // Muting drops whatever music is queued, so it takes effect within one chunk
+    void setMuted(boolean muted) {
+        this.muted = muted;
+    }
+
+    // Queues an effect to start with the next chunk; never blocks, and is dropped if there is no line
+    void playEffect(Effect effect) {
+
+        if (feeder == null) {
+            return;
+        }
+        int bit = 1 << effect.ordinal();
+        int pending;
+        do {
+            pending = pendingEffects.get();
+        } while (!pendingEffects.compareAndSet(pending, pending | bit));
+
+    }//end method playEffect
+
+    // Fills dst with a wavetable tone, faded in and out at the edges so notes join without clicks
+    static void synthesize(short[] dst, int off, int samples, int hz) {
+
+        int step = (int) ((long) hz * (1L << 32) / (long) SAMPLE_RATE);
+        int phase = 0;
+        int edge = Math.min(EDGE, samples / 2);
+        for (int k = 0; k < samples; k++) {
+            int sample = SINE[phase >>> (32 - TABLE_BITS)];
+            int fromEdge = Math.min(k, samples - 1 - k);
+            if (fromEdge < edge) {
+                sample = sample * fromEdge / edge;
+            }
+            dst[off + k] = (short) sample;
+            phase += step;
+        }
+
+    }//end method synthesize
+
+    // Queues len samples, blocking while the ring is full; returns false if muted before they were all queued
+    boolean write(short[] src, int off, int len) {
+
+        if (unavailable) {
+            // Nothing consumes the ring, so keep the song's timing with a plain sleep
+            LockSupport.parkNanos((long) (len * 1e9 / SAMPLE_RATE));
+            return !muted;
+        }
+
+        int done = 0;
+        while (done < len) {
+            if (muted) {
+                return false;
+            }
+            long w = writePos;
+            int free = (int) (RING_SIZE - (w - readPos));
+            if (free == 0) {
+                LockSupport.parkNanos(CHUNK * 500_000_000L / (long) SAMPLE_RATE);
+                continue;
+            }
+            int n = Math.min(free, len - done);
+            for (int k = 0; k < n; k++) {
+                ring[(int) ((w + k) & (RING_SIZE - 1))] = src[off + done + k];
+            }
+            writePos = w + n;
+            done += n;
+        }
+        return true;
+
+    }//end method write
+
+    @Override
+    public void run() {
+
+        byte[] out = new byte[CHUNK * 2];
+        int[] mix = new int[CHUNK];
+        boolean wasMuted = false;
+
+        while (true) {
+            boolean nowMuted = muted;
+            if (nowMuted && !wasMuted) {
+                // Drop queued music so muting is heard immediately
+                readPos = writePos;
+                line.flush();
+            }
+            wasMuted = nowMuted;
+
+            long r = readPos;
+            int available = (int) Math.min(writePos - r, CHUNK);
+            for (int k = 0; k < CHUNK; k++) {
+                mix[k] = k < available ? ring[(int) ((r + k) & (RING_SIZE - 1))] : 0;
+            }
+            readPos = r + available;
+
+            startVoices(pendingEffects.getAndSet(0));
+            mixVoices(mix);
+
+            for (int k = 0; k < CHUNK; k++) {
+                int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[k]));
+                out[2*k] = (byte) sample;
+                out[2*k + 1] = (byte) (sample >> 8);
+            }
+
+            // Blocks until the line has room, which paces this thread to the sample rate
+            line.write(out, 0, out.length);
+        }
+
+    }//end method run
+
+    private void startVoices(int pending) {
+
+        while (pending != 0) {
+            Effect effect = effects[Integer.numberOfTrailingZeros(pending)];
+            pending &= pending - 1;
+
+            // Use a free voice, or else the one that has played longest
+            int voice = 0;
+            for (int v = 0; v < VOICES; v++) {
+                if (voiceEffect[v] == null) {
+                    voice = v;
+                    break;
+                }
+                if (voicePos[v] > voicePos[voice]) {
+                    voice = v;
+                }
+            }
+            voiceEffect[voice] = effect;
+            voicePos[voice] = 0;
+        }
+
+    }//end method startVoices
+
+    private void mixVoices(int[] mix) {
+
+        for (int v = 0; v < VOICES; v++) {
+            Effect effect = voiceEffect[v];
+            if (effect == null) {
+                continue;
+            }
+            short[] samples = effect.samples;
+            int pos = voicePos[v];
+            int n = Math.min(CHUNK, samples.length - pos);
+            for (int k = 0; k < n; k++) {
+                mix[k] += samples[pos + k];
+            }
+            voicePos[v] = pos + n;
+            if (voicePos[v] >= samples.length) {
+                voiceEffect[v] = null;
+            }
+        }
+
+    }//end method mixVoices
+
+}//end class AudioEngine
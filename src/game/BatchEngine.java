@@ -0,0 +1,419 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Many independent games under GameEngine's rules, kept in flat
+ *          primitive arrays and all stepped by one call, for training agents
+ *          in bulk without allocating per step
+ */
+
+final class BatchEngine {
+
+    // Boards each forked task steps; enough to outweigh the fork
+    private static final int CHUNK = 64;
+
+    private static final int ROWS = GameEngine.HEIGHT;
+
+    private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+
+    private final int boards;
+    private final int preview;
+
+    // Board i's rows are wells[i*ROWS] through wells[i*ROWS + ROWS-1]
+    private final int[] wells;
+    private final int[] pieceX;
+    private final int[] pieceY;
+    private final int[] rotation;
+    private final int[] piece;
+    private final long[] score;
+    private final int[] level;
+    private final int[] lines;
+    private final boolean[] gameOver;
+    private final long[] seed;
+
+    // Each board deals its own pieces, the same ones a GameEngine reset to its seed would deal
+    private final PieceQueue[] queues;
+
+    // Parallel stepping reuses one task per chunk of boards
+    private final ForkJoinPool pool;
+    private final Chunk[] chunks;
+    private final RecursiveAction allChunks = new RecursiveAction() {
+        @Override
+        protected void compute() {
+            ForkJoinTask.invokeAll(chunks);
+        }
+    };
+    private int[] stepActions;
+    private float[] stepRewards;
+    private boolean[] stepDone;
+
+    BatchEngine(int boards, int preview, ForkJoinPool pool) {
+
+        this.boards = boards;
+        this.preview = preview;
+        this.pool = pool;
+        wells = new int[boards * ROWS];
+        pieceX = new int[boards];
+        pieceY = new int[boards];
+        rotation = new int[boards];
+        piece = new int[boards];
+        score = new long[boards];
+        level = new int[boards];
+        lines = new int[boards];
+        gameOver = new boolean[boards];
+        seed = new long[boards];
+        queues = new PieceQueue[boards];
+        for (int i = 0; i < boards; i++) {
+            queues[i] = new PieceQueue(preview, PieceQueue.bag7());
+        }
+        chunks = new Chunk[(boards + CHUNK - 1) / CHUNK];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new Chunk(c * CHUNK, Math.min(boards, (c + 1) * CHUNK));
+        }
+
+    }//end constructor
+
+    int getBoards() {
+        return boards;
+    }
+
+    // Ints observe writes per board: the rows above the floor, the falling piece,
+    // its rotation and position, the preview pieces, then level and lines
+    int getObservationSize() {
+        return (ROWS - 1) + 4 + preview + 2;
+    }
+
+    // Starts board i from seed + i; each time a board tops out its next game is seeded boards higher
+    void resetAll(long seed) {
+
+        for (int i = 0; i < boards; i++) {
+            reset(i, seed + i);
+        }
+
+    }//end method resetAll
+
+    // Starts a new game on board i, dealing the pieces GameEngine.reset(seed) would
+    void reset(int i, long seed) {
+
+        int base = i * ROWS;
+        for (int j = 0; j < ROWS; j++) {
+            wells[base + j] = (j == ROWS-1) ? GameEngine.FULL_ROW : GameEngine.WALL_ROW;
+        }
+        score[i] = 0;
+        level[i] = 1;
+        lines[i] = 0;
+        gameOver[i] = false;
+        this.seed[i] = seed;
+        queues[i].reset(seed);
+        newPiece(i);
+
+    }//end method reset
+
+    // Applies actions[i], an Action ordinal, to every board i; rewards[i] gets the points
+    // its line clears scored and done[i] whether it topped out, after which it starts over
+    void step(int[] actions, float[] rewards, boolean[] done) {
+        step(actions, rewards, done, 0, boards);
+    }
+
+    // Same for boards from through to-1 only; disjoint ranges may be stepped on different threads
+    void step(int[] actions, float[] rewards, boolean[] done, int from, int to) {
+
+        for (int i = from; i < to; i++) {
+            rewards[i] = apply(i, actions[i]);
+            done[i] = gameOver[i];
+            if (done[i]) {
+                reset(i, seed[i] + boards);
+            }
+        }
+
+    }//end method step
+
+    // Same as step, with the boards split into chunks across the pool
+    void stepParallel(int[] actions, float[] rewards, boolean[] done) {
+
+        stepActions = actions;
+        stepRewards = rewards;
+        stepDone = done;
+        for (Chunk chunk : chunks) {
+            chunk.reinitialize();
+        }
+        allChunks.reinitialize();
+        pool.invoke(allChunks);
+
+    }//end method stepParallel
+
+    private final class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            step(stepActions, stepRewards, stepDone, from, to);
+        }
+
+    }//end class Chunk
+
+    // Writes every board's observation into obs, getObservationSize() ints per board
+    void observe(int[] obs) {
+
+        int size = getObservationSize();
+        for (int i = 0; i < boards; i++) {
+            int at = i * size;
+            int base = i * ROWS;
+            for (int j = 0; j < ROWS - 1; j++) {
+                obs[at++] = (wells[base + j] & ~GameEngine.WALL_ROW) >>> 1;
+            }
+            obs[at++] = piece[i];
+            obs[at++] = rotation[i];
+            obs[at++] = pieceX[i];
+            obs[at++] = pieceY[i];
+            for (int k = 0; k < preview; k++) {
+                obs[at++] = queues[i].peek(k);
+            }
+            obs[at++] = level[i];
+            obs[at] = lines[i];
+        }
+
+    }//end method observe
+
+    // Same layout as ints in the buffer's byte order, from its index 0, leaving its position alone
+    void observe(ByteBuffer obs) {
+
+        int size = getObservationSize();
+        for (int i = 0; i < boards; i++) {
+            int at = i * size * 4;
+            int base = i * ROWS;
+            for (int j = 0; j < ROWS - 1; j++, at += 4) {
+                obs.putInt(at, (wells[base + j] & ~GameEngine.WALL_ROW) >>> 1);
+            }
+            obs.putInt(at, piece[i]);
+            obs.putInt(at + 4, rotation[i]);
+            obs.putInt(at + 8, pieceX[i]);
+            obs.putInt(at + 12, pieceY[i]);
+            at += 16;
+            for (int k = 0; k < preview; k++, at += 4) {
+                obs.putInt(at, queues[i].peek(k));
+            }
+            obs.putInt(at, level[i]);
+            obs.putInt(at + 4, lines[i]);
+        }
+
+    }//end method observe
+
+    // One move on board i under GameEngine.step's rules, returns the line points scored; boards
+    // play alone, so versus garbage never arises, and main's check mode compares the two engines
+    private int apply(int i, int action) {
+
+        if (action < 0 || action >= ACTIONS.length) {
+            throw new IllegalArgumentException("No action " + action);
+        }
+        switch (ACTIONS[action]) {
+            case LEFT:
+                slide(i, -1);
+                return 0;
+            case RIGHT:
+                slide(i, 1);
+                return 0;
+            case ROTATE:
+                int next = (rotation[i] + 1) % PieceTable.ROTATIONS;
+                if (!collides(i, pieceX[i], pieceY[i], next)) {
+                    rotation[i] = next;
+                }
+                return 0;
+            case DROP:
+                if (!collides(i, pieceX[i], pieceY[i]+1, rotation[i])) {
+                    pieceY[i]++;
+                    return 0;
+                }
+                return lockPiece(i);
+            case SLAM:
+                while (!collides(i, pieceX[i], pieceY[i]+1, rotation[i])) {
+                    pieceY[i]++;
+                }
+                return lockPiece(i);
+        }
+        return 0;
+
+    }//end method apply
+
+    private void slide(int i, int direction) {
+
+        if (!collides(i, pieceX[i]+direction, pieceY[i], rotation[i])) {
+            pieceX[i] += direction;
+        }
+
+    }//end method slide
+
+    private int lockPiece(int i) {
+
+        PieceTable.lock(wells, i * ROWS, piece[i], rotation[i], pieceX[i], pieceY[i]);
+        score[i] += pieceY[i]+1;
+        int points = clearLines(i);
+        newPiece(i);
+        return points;
+
+    }//end method lockPiece
+
+    private int clearLines(int i) {
+
+        int base = i * ROWS;
+        int cleared = 0;
+        for (int j = ROWS-2; j >= 0; j--) {
+            if (wells[base + j] == GameEngine.FULL_ROW) {
+                lines[i]++;
+                cleared++;
+                System.arraycopy(wells, base + 1, wells, base + 2, j-1);
+                wells[base + 1] = GameEngine.WALL_ROW;
+                j += 1;
+                if (lines[i] % 10 == 0) {
+                    level[i]++;
+                }
+            }
+        }
+        int points = GameEngine.linePoints(cleared, level[i]);
+        score[i] += points;
+        return points;
+
+    }//end method clearLines
+
+    private void newPiece(int i) {
+
+        pieceX[i] = GameEngine.START_X;
+        pieceY[i] = GameEngine.START_Y;
+        rotation[i] = 0;
+        piece[i] = queues[i].next();
+        gameOver[i] = collides(i, pieceX[i], pieceY[i]+1, 0);
+
+    }//end method newPiece
+
+    private boolean collides(int i, int x, int y, int r) {
+        return PieceTable.collides(wells, i * ROWS, piece[i], r, x, y);
+    }
+
+    long getScore(int i) {
+        return score[i];
+    }
+
+    int getLevel(int i) {
+        return level[i];
+    }
+
+    int getClearedLines(int i) {
+        return lines[i];
+    }
+
+    // Occupied-bit mask of board i's row, including the wall bits
+    int getRow(int i, int row) {
+        return wells[i * ROWS + row];
+    }
+
+    // Plays random moves on a GameEngine and a one-board batch from the same seed, returns the first
+    // step at which their wells or stats differ, or -1 if they agree throughout
+    static long compare(long seed, long steps) {
+
+        GameEngine engine = new GameEngine();
+        BatchEngine batch = new BatchEngine(1, GameEngine.PREVIEW, ForkJoinPool.commonPool());
+        engine.reset(seed);
+        batch.resetAll(seed);
+        long game = seed;
+        int[] actions = new int[1];
+        float[] rewards = new float[1];
+        boolean[] done = new boolean[1];
+        PieceQueue.Rng rng = new PieceQueue.Rng(seed);
+
+        for (long k = 0; k < steps; k++) {
+            // Mostly sideways and turns, as a player would, so lines get cleared now and then
+            actions[0] = rng.nextInt(8) == 0 ? GameEngine.Action.SLAM.ordinal() : rng.nextInt(4);
+            engine.step(ACTIONS[actions[0]]);
+            batch.step(actions, rewards, done);
+            if (done[0] != engine.isGameOver()) {
+                return k;
+            }
+            if (done[0]) {
+                // The batch has already started its next game from the next seed
+                engine.reset(++game);
+            }
+            if (batch.getScore(0) != engine.getScore() || batch.getLevel(0) != engine.getLevel()
+                    || batch.getClearedLines(0) != engine.getClearedLines()) {
+                return k;
+            }
+            for (int j = 0; j < ROWS; j++) {
+                if (batch.getRow(0, j) != engine.getRow(j)) {
+                    return k;
+                }
+            }
+        }
+        return -1;
+
+    }//end method compare
+
+    // Steps per second with random moves as the batch grows, sequential and across the pool,
+    // e.g. java game.BatchEngine 4096 2000; or with "check" compares it to GameEngine over that
+    // many thousand steps, e.g. java game.BatchEngine check 10000
+    public static void main(String[] args) {
+
+        if (args.length > 0 && args[0].equals("check")) {
+            long steps = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 1_000_000;
+            for (long seed = 1; seed <= 4; seed++) {
+                long at = compare(seed, steps);
+                System.out.println("seed " + seed + ": " + (at < 0 ? "ok" : "MISMATCH at step " + at));
+            }
+            return;
+        }
+
+        int maxBoards = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        long totalSteps = args.length > 1 ? Long.parseLong(args[1]) * 1000 : 20_000_000;
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int moves = GameEngine.Action.values().length;
+        PieceQueue.Rng rng = new PieceQueue.Rng(1);
+        for (int n = 1; n <= maxBoards; n *= 4) {
+            BatchEngine engine = new BatchEngine(n, GameEngine.PREVIEW, pool);
+            int[] actions = new int[n];
+            float[] rewards = new float[n];
+            boolean[] done = new boolean[n];
+            int[] obs = new int[n * engine.getObservationSize()];
+            long rounds = Math.max(totalSteps / n, 1);
+
+            for (int parallel = 0; parallel < 2; parallel++) {
+                engine.resetAll(1);
+                long start = 0;
+                // The first half of the rounds warms up, the second half is timed
+                for (long k = -rounds; k < rounds; k++) {
+                    if (k == 0) {
+                        start = System.nanoTime();
+                    }
+                    for (int i = 0; i < n; i++) {
+                        actions[i] = rng.nextInt(moves);
+                    }
+                    if (parallel == 1) {
+                        engine.stepParallel(actions, rewards, done);
+                    }
+                    else {
+                        engine.step(actions, rewards, done);
+                    }
+                    engine.observe(obs);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%5d boards, %s: %,.0f steps/s%n",
+                    n, parallel == 1 ? "parallel  " : "sequential", rounds * n / seconds);
+            }
+        }
+
+    }//end method main
+
+}//end class BatchEngine
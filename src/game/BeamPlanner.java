@@ -0,0 +1,219 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Computer player that searches several pieces into the queue,
+ *          keeping the best few wells at each depth and expanding them in
+ *          parallel on a ForkJoinPool
+ */
+
+final class BeamPlanner implements Planner {
+
+    // A well reached by placing the pieces so far; immutable, so workers share them freely
+    private static final class Node {
+        final int[] well;
+        final int lines;
+        final double score;
+        // Placement of the falling piece this well descends from
+        final int first;
+
+        Node(int[] well, int lines, double score, int first) {
+            this.well = well;
+            this.lines = lines;
+            this.score = score;
+            this.first = first;
+        }
+    }
+
+    // Best score first; ties go to the lower first placement so every run picks the same move
+    private static final Comparator<Node> BEST_FIRST = (a, b) -> {
+        int c = Double.compare(b.score, a.score);
+        return c != 0 ? c : Integer.compare(a.first, b.first);
+    };
+
+    private final double[] weights;
+    private final int width;
+    private final int maxDepth;
+    private final long budget;
+    private final ForkJoinPool pool;
+    private int lastDepth;
+
+    // Keeps the best width wells per depth, looking up to maxDepth pieces ahead including the falling one,
+    // and starts no new depth once budget nanoseconds have passed
+    BeamPlanner(double[] weights, int width, int maxDepth, long budget, ForkJoinPool pool) {
+        this.weights = weights.clone();
+        this.width = width;
+        this.maxDepth = maxDepth;
+        this.budget = budget;
+        this.pool = pool;
+    }
+
+    // Pieces deep the last plan searched
+    int getLastDepth() {
+        return lastDepth;
+    }
+
+    @Override
+    public int plan(GameEngine engine, GameEngine.Action[] moves) {
+
+        if (engine.isGameOver()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        int[] well = new int[GameEngine.HEIGHT];
+        for (int j = 0; j < GameEngine.HEIGHT; j++) {
+            well[j] = engine.getRow(j);
+        }
+        int x0 = engine.getPieceX();
+        int depthLimit = Math.min(maxDepth, 1 + engine.getPreviewCount());
+
+        // The falling piece starts where it is now, every later one from its spawn
+        List<Node> beam = expand(new Node[] {new Node(well, 0, 0, -1)}, engine.getCurrentPiece(),
+            engine.getRotation(), x0, engine.getPieceY(), true);
+        lastDepth = 1;
+        while (lastDepth < depthLimit && System.nanoTime() - start < budget && !beam.isEmpty()) {
+            List<Node> next = expand(beam.toArray(new Node[0]), engine.getPreview(lastDepth - 1),
+                0, GameEngine.START_X, GameEngine.START_Y, false);
+            if (next.isEmpty()) {
+                // Every line of play tops out here, so go with what the shallower search preferred
+                break;
+            }
+            beam = next;
+            lastDepth++;
+        }
+
+        int best = beam.isEmpty() ? x0 : beam.get(0).first;
+        return Planner.moves(Bot.turns(best), x0, Bot.column(best), moves);
+
+    }//end method plan
+
+    // Places piece every way it can go on each node, returns the best width children, best first
+    private List<Node> expand(Node[] nodes, int piece, int r0, int x0, int y0, boolean root) {
+
+        return pool.invoke(new Expand(nodes, 0, nodes.length, piece, r0, x0, y0, root));
+
+    }//end method expand
+
+    private final class Expand extends RecursiveTask<List<Node>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Node[] nodes;
+        private final int from;
+        private final int to;
+        private final int piece;
+        private final int r0;
+        private final int x0;
+        private final int y0;
+        private final boolean root;
+
+        Expand(Node[] nodes, int from, int to, int piece, int r0, int x0, int y0, boolean root) {
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.piece = piece;
+            this.r0 = r0;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.root = root;
+        }
+
+        @Override
+        protected List<Node> compute() {
+
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                Expand right = new Expand(nodes, mid, to, piece, r0, x0, y0, root);
+                right.fork();
+                List<Node> left = new Expand(nodes, from, mid, piece, r0, x0, y0, root).compute();
+                return merge(left, right.join());
+            }
+
+            List<Node> children = new ArrayList<>();
+            if (from == to) {
+                return children;
+            }
+            Node node = nodes[from];
+            if (!root && PieceTable.collides(node.well, piece, r0, x0, y0 + 1)) {
+                // The piece has no room to spawn, this line of play is over
+                return children;
+            }
+            int[] placements = new int[Bot.MAX_PLACEMENTS];
+            int count = Bot.placements(node.well, piece, r0, x0, y0, placements);
+            for (int i = 0; i < count; i++) {
+                int placement = placements[i];
+                int[] well = new int[GameEngine.HEIGHT];
+                int r = (r0 + Bot.turns(placement)) % PieceTable.ROTATIONS;
+                int lines = node.lines + Bot.place(node.well, well, piece, r, Bot.column(placement), y0);
+                double score = Bot.evaluate(weights, well, lines);
+                children.add(new Node(well, lines, score, root ? placement : node.first));
+            }
+            children.sort(BEST_FIRST);
+            return children.size() > width ? new ArrayList<>(children.subList(0, width)) : children;
+
+        }//end method compute
+
+    }//end class Expand
+
+    // Best width nodes of two lists that are each best first
+    private List<Node> merge(List<Node> a, List<Node> b) {
+
+        List<Node> merged = new ArrayList<>(Math.min(width, a.size() + b.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < width && (i < a.size() || j < b.size())) {
+            if (j >= b.size() || (i < a.size() && BEST_FIRST.compare(a.get(i), b.get(j)) <= 0)) {
+                merged.add(a.get(i++));
+            }
+            else {
+                merged.add(b.get(j++));
+            }
+        }
+        return merged;
+
+    }//end method merge
+
+    // Times plans of one position on pools of 1, 2, 4... threads, e.g. java game.BeamPlanner 256 5
+    public static void main(String[] args) {
+
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int plans = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        GameEngine engine = new GameEngine(PieceQueue.bag7(), Math.max(depth - 1, 1));
+        engine.reset(1);
+        new Bot().play(engine, 40);
+        GameEngine.Action[] moves = new GameEngine.Action[MAX_MOVES];
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double single = 0;
+        for (int threads = 1; threads <= cores; threads = (threads == cores) ? cores + 1 : Math.min(threads * 2, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            BeamPlanner planner = new BeamPlanner(Bot.DEFAULT_WEIGHTS, width, depth, Long.MAX_VALUE, pool);
+            for (int k = 0; k < 3; k++) {
+                planner.plan(engine, moves);
+            }
+            long start = System.nanoTime();
+            for (int k = 0; k < plans; k++) {
+                planner.plan(engine, moves);
+            }
+            double ms = (System.nanoTime() - start) / 1e6 / plans;
+            if (threads == 1) {
+                single = ms;
+            }
+            System.out.printf("%2d threads: %.2f ms per plan, speedup %.2f, first move %s%n",
+                threads, ms, single / ms, Arrays.toString(Arrays.copyOf(moves, planner.plan(engine, moves))));
+            pool.shutdown();
+        }
+
+    }//end method main
+
+}//end class BeamPlanner
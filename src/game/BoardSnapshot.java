@@ -0,0 +1,93 @@
+package game;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Immutable copy of everything the renderer draws, published by the
+ *          game thread after each change so drawing never reads live state
+ */
+
+final class BoardSnapshot {
+
+    // Piece id of every well cell, row-major, GameEngine.EMPTY if unoccupied
+    private final byte[] cells;
+
+    private final int pieceX;
+    private final int pieceY;
+    private final int rotation;
+    private final int currentPiece;
+    private final int previewPiece;
+
+    private final long score;
+    private final int level;
+    private final int clearedLines;
+    private final int numCleared;
+    private final int[] flashRows;
+    private final boolean gameOver;
+
+    BoardSnapshot(byte[] cells, int pieceX, int pieceY, int rotation, int currentPiece,
+                  int previewPiece, long score, int level, int clearedLines, int numCleared,
+                  int[] flashRows, boolean gameOver) {
+        this.cells = cells;
+        this.pieceX = pieceX;
+        this.pieceY = pieceY;
+        this.rotation = rotation;
+        this.currentPiece = currentPiece;
+        this.previewPiece = previewPiece;
+        this.score = score;
+        this.level = level;
+        this.clearedLines = clearedLines;
+        this.numCleared = numCleared;
+        this.flashRows = flashRows;
+        this.gameOver = gameOver;
+    }
+
+    byte getCell(int col, int row) {
+        return cells[row*GameEngine.WIDTH + col];
+    }
+
+    int getPieceX() {
+        return pieceX;
+    }
+
+    int getPieceY() {
+        return pieceY;
+    }
+
+    int getRotation() {
+        return rotation;
+    }
+
+    int getCurrentPiece() {
+        return currentPiece;
+    }
+
+    int getPreviewPiece() {
+        return previewPiece;
+    }
+
+    long getScore() {
+        return score;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    int getClearedLines() {
+        return clearedLines;
+    }
+
+    int getNumCleared() {
+        return numCleared;
+    }
+
+    int getFlashRow(int i) {
+        return flashRows[i];
+    }
+
+    boolean isGameOver() {
+        return gameOver;
+    }
+
+}//end class BoardSnapshot
@@ -0,0 +1,247 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Computer player that tries every reachable placement of the falling
+ *          piece and of the preview piece after it, scores the resulting wells
+ *          with a weighted evaluator and plays the best one through the engine
+ */
+
+final class Bot implements Planner {
+
+    // Evaluator features, each multiplied by its weight; higher totals are better wells
+    static final int HEIGHT = 0;
+    static final int LINES = 1;
+    static final int HOLES = 2;
+    static final int BUMPINESS = 3;
+    static final int FEATURES = 4;
+
+    // Published weights for these four features, a good default before any tuning
+    static final double[] DEFAULT_WEIGHTS = {-0.510066, 0.760666, -0.35663, -0.184483};
+
+    // Subtracted from a placement that leaves no room for the next piece
+    static final double DEATH = 1e9;
+
+    // Most placements one piece can have, every rotation at every column
+    static final int MAX_PLACEMENTS = PieceTable.ROTATIONS * PieceTable.OFFSETS;
+
+    private static final int ROWS = GameEngine.HEIGHT;
+    private static final int INTERIOR = GameEngine.FULL_ROW & ~GameEngine.WALL_ROW;
+
+    // SAME[p][a][b] is true when rotations a and b of piece p cover the same cells
+    private static final boolean[][][] SAME = new boolean[PieceTable.PIECES][PieceTable.ROTATIONS][PieceTable.ROTATIONS];
+
+    static {
+        for (int p = 0; p < PieceTable.PIECES; p++) {
+            for (int a = 0; a < PieceTable.ROTATIONS; a++) {
+                for (int b = 0; b < PieceTable.ROTATIONS; b++) {
+                    SAME[p][a][b] = Arrays.equals(PieceTable.ROW_MASKS[p][a][0], PieceTable.ROW_MASKS[p][b][0]);
+                }
+            }
+        }
+    }
+
+    private final double[] weights;
+    private final boolean lookahead;
+
+    // Scratch wells and placement lists, reused by every plan
+    private final int[] current = new int[ROWS];
+    private final int[] afterFirst = new int[ROWS];
+    private final int[] afterSecond = new int[ROWS];
+    private final int[] firstPlacements = new int[MAX_PLACEMENTS];
+    private final int[] secondPlacements = new int[MAX_PLACEMENTS];
+
+    Bot() {
+        this(DEFAULT_WEIGHTS, true);
+    }
+
+    // Without lookahead only the falling piece is placed, which is far cheaper
+    Bot(double[] weights, boolean lookahead) {
+        this.weights = weights.clone();
+        this.lookahead = lookahead;
+    }
+
+    @Override
+    public int plan(GameEngine engine, GameEngine.Action[] moves) {
+
+        if (engine.isGameOver()) {
+            return 0;
+        }
+        for (int j = 0; j < ROWS; j++) {
+            current[j] = engine.getRow(j);
+        }
+        int piece = engine.getCurrentPiece();
+        int r0 = engine.getRotation();
+        int x0 = engine.getPieceX();
+        int y0 = engine.getPieceY();
+        int preview = lookahead ? engine.getPreviewPiece() : -1;
+
+        double best = Double.NEGATIVE_INFINITY;
+        int bestPlacement = x0;
+        int count = placements(current, piece, r0, x0, y0, firstPlacements);
+        for (int i = 0; i < count; i++) {
+            int placement = firstPlacements[i];
+            int r = (r0 + turns(placement)) % PieceTable.ROTATIONS;
+            int lines = place(current, afterFirst, piece, r, column(placement), y0);
+            double score = (preview < 0) ? evaluate(weights, afterFirst, lines) : bestFollowUp(preview, lines);
+            if (score > best) {
+                best = score;
+                bestPlacement = placement;
+            }
+        }
+        return Planner.moves(turns(bestPlacement), x0, column(bestPlacement), moves);
+
+    }//end method plan
+
+    // Score of the best placement of the preview piece from its spawn on afterFirst
+    private double bestFollowUp(int piece, int firstLines) {
+
+        if (PieceTable.collides(afterFirst, piece, 0, GameEngine.START_X, GameEngine.START_Y + 1)) {
+            return evaluate(weights, afterFirst, firstLines) - DEATH;
+        }
+        double best = Double.NEGATIVE_INFINITY;
+        int count = placements(afterFirst, piece, 0, GameEngine.START_X, GameEngine.START_Y, secondPlacements);
+        for (int i = 0; i < count; i++) {
+            int placement = secondPlacements[i];
+            int lines = place(afterFirst, afterSecond, piece, turns(placement), column(placement), GameEngine.START_Y);
+            best = Math.max(best, evaluate(weights, afterSecond, firstLines + lines));
+        }
+        return best;
+
+    }//end method bestFollowUp
+
+    // Writes every placement reachable from (r0, x0, y0) into out, returns how many: each rotation
+    // in turn, then each slide along the row; a turn that repeats the cells of a cheaper one is left out
+    static int placements(int[] well, int piece, int r0, int x0, int y0, int[] out) {
+
+        int count = 0;
+        for (int turns = 0; turns < PieceTable.ROTATIONS; turns++) {
+            int r = (r0 + turns) % PieceTable.ROTATIONS;
+            if (turns > 0 && PieceTable.collides(well, piece, r, x0, y0)) {
+                break;
+            }
+            if (repeatsEarlierTurn(piece, r0, turns)) {
+                continue;
+            }
+            for (int x = x0; !PieceTable.collides(well, piece, r, x, y0); x--) {
+                out[count++] = turns << 8 | x;
+            }
+            for (int x = x0 + 1; !PieceTable.collides(well, piece, r, x, y0); x++) {
+                out[count++] = turns << 8 | x;
+            }
+        }
+        return count;
+
+    }//end method placements
+
+    // Rotations a placement needs from where the piece started
+    static int turns(int placement) {
+        return placement >>> 8;
+    }
+
+    // Column the placement puts the piece's origin in
+    static int column(int placement) {
+        return placement & 0xFF;
+    }
+
+    // True if turning that many times from r0 gives cells an earlier, cheaper turn already gave
+    private static boolean repeatsEarlierTurn(int piece, int r0, int turns) {
+
+        int r = (r0 + turns) % PieceTable.ROTATIONS;
+        for (int t = 0; t < turns; t++) {
+            if (SAME[piece][r][(r0 + t) % PieceTable.ROTATIONS]) {
+                return true;
+            }
+        }
+        return false;
+
+    }//end method repeatsEarlierTurn
+
+    // Drops the piece from (x, y) onto a copy of src in dst, clears full rows, returns the lines cleared
+    static int place(int[] src, int[] dst, int piece, int rotation, int x, int y) {
+
+        while (!PieceTable.collides(src, piece, rotation, x, y + 1)) {
+            y++;
+        }
+        System.arraycopy(src, 0, dst, 0, ROWS);
+        PieceTable.lock(dst, piece, rotation, x, y);
+
+        // Slide the rows that stay down over the full ones, bottom up
+        int write = ROWS - 2;
+        for (int j = ROWS - 2; j >= 0; j--) {
+            if (dst[j] != GameEngine.FULL_ROW) {
+                dst[write--] = dst[j];
+            }
+        }
+        int lines = write + 1;
+        for (int j = write; j >= 0; j--) {
+            dst[j] = GameEngine.WALL_ROW;
+        }
+        return lines;
+
+    }//end method place
+
+    // Weighted sum of the well's features, lines being those the placements just cleared;
+    // keeps no state, so any number of threads may call it at once
+    static double evaluate(double[] weights, int[] well, int lines) {
+
+        // Walk down the rows: a column's height is set by its first occupied cell,
+        // and every empty cell below an occupied one is a hole. Heights are packed
+        // five bits per column into one long, so nothing is allocated
+        int covered = 0;
+        int holes = 0;
+        long heights = 0;
+        for (int j = 0; j < ROWS - 1; j++) {
+            int row = well[j] & INTERIOR;
+            int fresh = row & ~covered;
+            while (fresh != 0) {
+                int col = Integer.numberOfTrailingZeros(fresh);
+                heights |= (long) (ROWS - 1 - j) << (5 * col);
+                fresh &= fresh - 1;
+            }
+            holes += Integer.bitCount(covered & ~row);
+            covered |= row;
+        }
+
+        int aggregate = 0;
+        int bumpiness = 0;
+        int previous = -1;
+        for (int col = 1; col < GameEngine.WIDTH - 1; col++) {
+            int h = (int) (heights >>> (5 * col)) & 0x1F;
+            aggregate += h;
+            if (previous >= 0) {
+                bumpiness += Math.abs(h - previous);
+            }
+            previous = h;
+        }
+
+        return weights[HEIGHT] * aggregate + weights[LINES] * lines
+            + weights[HOLES] * holes + weights[BUMPINESS] * bumpiness;
+
+    }//end method evaluate
+
+    // Plays headless games with the default bot, e.g. java game.Bot 10 1
+    public static void main(String[] args) {
+
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        long maxPieces = args.length > 2 ? Long.parseLong(args[2]) : 100_000;
+
+        Bot bot = new Bot();
+        GameEngine engine = new GameEngine();
+        for (int g = 0; g < games; g++) {
+            engine.reset(seed + g);
+            long start = System.nanoTime();
+            long pieces = bot.play(engine, maxPieces);
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("game %d: %d pieces, %d lines, level %d, score %d, %.1f us per piece%n",
+                g, pieces, engine.getClearedLines(), engine.getLevel(), engine.getScore(),
+                elapsed / 1e3 / Math.max(pieces, 1));
+        }
+
+    }//end method main
+
+}//end class Bot
@@ -0,0 +1,397 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Loopback server that lets bots in other processes play batches of
+ *          headless games, taking moves over a socket and leaving each board's
+ *          observation in a memory-mapped file the bot reads in place
+ */
+
+final class BotServer {
+
+    // Protocol, all little-endian:
+    //   bot hello:     int MAGIC, int boards, long seed
+    //   server hello:  int MAGIC, int observation ints per board, int path length, path of the UTF-8 observation file
+    //   bot step:      int steps, then steps rows of one Action ordinal byte per board
+    //   server result: boards floats of line points summed over the steps, then boards bytes, 1 if the board topped out
+    // After each result the observation file holds the boards as BatchEngine.observe writes them,
+    // behind a header of MAGIC, boards, observation ints per board and the number of results sent
+    static final int MAGIC = 0x54564254;
+    static final int HEADER = 16;
+
+    // Limits on one session, so a bad client cannot make the server allocate without end
+    static final int MAX_BOARDS = 4096;
+    private static final int MAX_FRAME = 1 << 20;
+
+    private static final int ACTIONS = GameEngine.Action.values().length;
+
+    private final ServerSocketChannel server;
+    private final Loop[] loops;
+    private final File dir;
+    private volatile boolean running = true;
+    private Thread acceptor;
+
+    // One session per connection, owned by the loop it was handed to
+    private final class Session {
+        final SocketChannel channel;
+        // Grows to the largest frame the bot sends, up to MAX_FRAME
+        ByteBuffer in = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer out;
+        BatchEngine engine;
+        File file;
+        MappedByteBuffer map;
+        ByteBuffer observations;
+        int[] actions;
+        float[] rewards;
+        float[] totals;
+        boolean[] done;
+        boolean[] anyDone;
+        int results;
+
+        Session(SocketChannel channel) {
+            this.channel = channel;
+            out = ByteBuffer.allocate(0);
+        }
+    }
+
+    // A selector thread serving its share of the sessions; stepping is cheap enough to do in place
+    private final class Loop implements Runnable {
+        final Selector selector;
+        final Queue<SocketChannel> added = new ConcurrentLinkedQueue<>();
+
+        Loop() throws IOException {
+            selector = Selector.open();
+        }
+
+        @Override
+        public void run() {
+
+            while (running) {
+                try {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = added.poll()) != null) {
+                        channel.register(selector, SelectionKey.OP_READ, new Session(channel));
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        serve(key);
+                    }
+                    selector.selectedKeys().clear();
+                } catch (IOException e) {
+                    System.err.println("Bot server: " + e);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                close((Session) key.attachment());
+            }
+
+        }//end method run
+    }
+
+    BotServer(int port, int threads) throws IOException {
+
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        dir = new File(System.getProperty("java.io.tmpdir"), "tevtris-bots-" + getPort());
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        dir.deleteOnExit();
+        loops = new Loop[threads];
+        for (int k = 0; k < threads; k++) {
+            loops[k] = new Loop();
+        }
+
+    }//end constructor
+
+    int getPort() {
+        return ((InetSocketAddress) server.socket().getLocalSocketAddress()).getPort();
+    }
+
+    void start() {
+
+        for (int k = 0; k < loops.length; k++) {
+            Thread loop = new Thread(loops[k], "botServer-" + (k + 1));
+            loop.setDaemon(true);
+            loop.start();
+        }
+        acceptor = new Thread(this::accept, "botAccept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+    }//end method start
+
+    void stop() throws IOException {
+
+        running = false;
+        server.close();
+        for (Loop loop : loops) {
+            loop.selector.wakeup();
+        }
+
+    }//end method stop
+
+    // Hands new connections to the loops in turn
+    private void accept() {
+
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = server.accept();
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.configureBlocking(false);
+                Loop loop = loops[next++ % loops.length];
+                loop.added.add(channel);
+                loop.selector.wakeup();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Bot server: " + e);
+                }
+            }
+        }
+
+    }//end method accept
+
+    private void serve(SelectionKey key) {
+
+        Session session = (Session) key.attachment();
+        try {
+            if (key.isReadable() && session.channel.read(session.in) < 0) {
+                close(session);
+                return;
+            }
+            // Answers each whole frame waiting once the answer before it is fully sent
+            session.channel.write(session.out);
+            session.in.flip();
+            while (!session.out.hasRemaining() && handle(session)) {
+                session.channel.write(session.out);
+            }
+            session.in.compact();
+            key.interestOps(session.out.hasRemaining() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Bot session closed: " + e);
+            close(session);
+        }
+
+    }//end method serve
+
+    // Answers one whole frame from the session's input, returns false if there isn't one yet
+    private boolean handle(Session session) throws IOException {
+
+        ByteBuffer in = session.in;
+        if (session.engine == null) {
+            if (in.remaining() < 16) {
+                return false;
+            }
+            if (in.getInt() != MAGIC) {
+                throw new IOException("not a bot client");
+            }
+            int boards = in.getInt();
+            long seed = in.getLong();
+            if (boards < 1 || boards > MAX_BOARDS) {
+                throw new IOException("cannot serve " + boards + " boards");
+            }
+            open(session, boards, seed);
+            return true;
+        }
+
+        int boards = session.engine.getBoards();
+        if (in.remaining() < 4) {
+            return false;
+        }
+        int steps = in.getInt(in.position());
+        if (steps < 0 || (long) steps * boards > MAX_FRAME) {
+            throw new IOException("frame of " + steps + " steps is too large");
+        }
+        if (in.remaining() < 4 + steps * boards) {
+            if (4 + steps * boards > in.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(4 + steps * boards).order(ByteOrder.LITTLE_ENDIAN);
+                larger.put(in).flip();
+                session.in = larger;
+            }
+            return false;
+        }
+        in.getInt();
+
+        Arrays.fill(session.totals, 0);
+        Arrays.fill(session.anyDone, false);
+        for (int s = 0; s < steps; s++) {
+            for (int i = 0; i < boards; i++) {
+                int action = in.get();
+                if (action < 0 || action >= ACTIONS) {
+                    throw new IOException("no action " + action);
+                }
+                session.actions[i] = action;
+            }
+            session.engine.step(session.actions, session.rewards, session.done);
+            for (int i = 0; i < boards; i++) {
+                session.totals[i] += session.rewards[i];
+                session.anyDone[i] |= session.done[i];
+            }
+        }
+
+        // Observations land before the result is sent, so the bot may read them as soon as it arrives
+        session.engine.observe(session.observations);
+        session.map.putInt(12, ++session.results);
+        ByteBuffer out = session.out;
+        out.clear();
+        for (int i = 0; i < boards; i++) {
+            out.putFloat(session.totals[i]);
+        }
+        for (int i = 0; i < boards; i++) {
+            out.put((byte) (session.anyDone[i] ? 1 : 0));
+        }
+        out.flip();
+        return true;
+
+    }//end method handle
+
+    // Sets up the session's boards and observation file and queues the server hello
+    private void open(Session session, int boards, long seed) throws IOException {
+
+        BatchEngine engine = new BatchEngine(boards, GameEngine.PREVIEW, ForkJoinPool.commonPool());
+        engine.resetAll(seed);
+        int size = engine.getObservationSize();
+
+        File file = File.createTempFile("session-", ".obs", dir);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            session.map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER + 4L * boards * size);
+        }
+        session.map.order(ByteOrder.LITTLE_ENDIAN);
+        session.map.putInt(0, MAGIC);
+        session.map.putInt(4, boards);
+        session.map.putInt(8, size);
+        session.map.position(HEADER);
+        session.observations = session.map.slice().order(ByteOrder.LITTLE_ENDIAN);
+        engine.observe(session.observations);
+
+        session.engine = engine;
+        session.file = file;
+        session.actions = new int[boards];
+        session.rewards = new float[boards];
+        session.totals = new float[boards];
+        session.done = new boolean[boards];
+        session.anyDone = new boolean[boards];
+
+        byte[] path = file.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+        session.out = ByteBuffer.allocate(Math.max(5 * boards, 12 + path.length)).order(ByteOrder.LITTLE_ENDIAN);
+        session.out.putInt(MAGIC).putInt(size).putInt(path.length).put(path).flip();
+
+    }//end method open
+
+    private void close(Session session) {
+
+        try {
+            session.channel.close();
+        } catch (IOException e) {
+            //already gone
+        }
+        // Should this fail the file is only left behind in the temporary directory
+        if (session.file != null) {
+            session.file.delete();
+        }
+
+    }//end method close
+
+    // Serves bots on the loopback port, or with "bench" also plays one as a client and times it,
+    // e.g. java game.BotServer 8766 or java game.BotServer bench 64 100
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        boolean bench = args.length > 0 && args[0].equals("bench");
+        int threads = Runtime.getRuntime().availableProcessors();
+        BotServer server = new BotServer(bench ? 0 : (args.length > 0 ? Integer.parseInt(args[0]) : 8766), threads);
+        server.start();
+        System.out.println("Bot server on 127.0.0.1:" + server.getPort());
+        if (!bench) {
+            Thread.currentThread().join();
+        }
+
+        int boards = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()))) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer out = ByteBuffer.allocate(Math.max(16, 4 + steps * boards)).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer in = ByteBuffer.allocate(Math.max(5 * boards, 4096)).order(ByteOrder.LITTLE_ENDIAN);
+            in.flip();
+            out.putInt(MAGIC).putInt(boards).putLong(1).flip();
+            writeFully(channel, out);
+            readFully(channel, in, 12);
+            in.getInt();
+            int size = in.getInt();
+            byte[] path = new byte[in.getInt()];
+            readFully(channel, in, path.length);
+            in.get(path);
+            MappedByteBuffer obs;
+            try (RandomAccessFile raf = new RandomAccessFile(new String(path, StandardCharsets.UTF_8), "r")) {
+                obs = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, HEADER + 4L * boards * size);
+            }
+            obs.order(ByteOrder.LITTLE_ENDIAN);
+
+            PieceQueue.Rng rng = new PieceQueue.Rng(2);
+            long start = System.nanoTime();
+            int frames = 0;
+            while (System.nanoTime() - start < 3_000_000_000L) {
+                out.clear();
+                out.putInt(steps);
+                for (int k = 0; k < steps * boards; k++) {
+                    out.put((byte) (rng.nextInt(5) == 0 ? GameEngine.Action.SLAM.ordinal() : rng.nextInt(3)));
+                }
+                out.flip();
+                writeFully(channel, out);
+                readFully(channel, in, 5 * boards);
+                in.position(in.position() + 5 * boards);
+                if (obs.getInt(12) != ++frames) {
+                    throw new IOException("observations are behind the results");
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d boards, %d steps per frame: %,.0f frames/s, %,.0f board steps/s, %.1f us per round trip%n",
+                boards, steps, frames / seconds, (double) frames * steps * boards / seconds, seconds * 1e6 / frames);
+        }
+        server.stop();
+
+    }//end method main
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buf) throws IOException {
+
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+
+    }//end method writeFully
+
+    // Reads until at least n bytes are waiting in buf, leaving them ready to get
+    private static void readFully(SocketChannel channel, ByteBuffer buf, int n) throws IOException {
+
+        buf.compact();
+        while (buf.position() < n) {
+            if (channel.read(buf) < 0) {
+                throw new IOException("server closed the connection");
+            }
+        }
+        buf.flip();
+
+    }//end method readFully
+
+}//end class BotServer
@@ -0,0 +1,491 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Headless game rules, advanced one action or gravity tick at a time
+ *          with no drawing, sound or timing of its own
+ */
+
+class GameEngine {
+
+    // Moves a player or bot can make with the falling piece
+    enum Action {
+        LEFT, RIGHT, ROTATE, DROP, SLAM
+    }
+
+    // Callbacks for game events, all run on the thread that stepped the engine
+    interface Listener {
+        default void pieceLocked() {}
+        default void linesCleared(int count) {}
+        default void levelChanged(int level) {}
+        default void gameOver() {}
+    }
+
+    static final int WIDTH = 12;
+    static final int HEIGHT = 20;
+    static final byte EMPTY = -1;
+
+    // Bitboard row masks, bit i of a row is set when column i is occupied
+    static final int WALL_ROW = 0x801;
+    static final int FULL_ROW = 0xFFF;
+
+    // Spawn position of every new piece
+    static final int START_X = 4;
+    static final int START_Y = 1;
+
+    // Upcoming pieces shown to players and bots by default
+    static final int PREVIEW = 3;
+
+    // Room writeState may need, enough for any preview and randomizer used in this game
+    static final int MAX_STATE = 1024;
+
+    // Points for clearing 0 to 4 lines at once, before multiplying by the level
+    private static final int[] LINE_POINTS = {0, 40, 100, 300, 1200};
+
+    // Garbage rows sent to an opponent for clearing 0 to 4 lines at once in versus play
+    private static final int[] GARBAGE = {0, 0, 1, 2, 4};
+
+    // Piece code of the cells in garbage rows
+    static final byte GARBAGE_CELL = PieceTable.PIECES;
+
+    // Fields used for tetramino logic
+    private int pieceX;
+    private int pieceY;
+    private int currentPiece;
+    private int rotation;
+    private final PieceQueue pieces;
+
+    // Occupied bits of each row, and which piece filled each cell
+    private final int[] well = new int[HEIGHT];
+    private final byte[][] wellPieces = new byte[HEIGHT][WIDTH];
+
+    // Fields used to store game-play stats
+    private long score = 0;
+    private int level = 1;
+    private int clearedLines = 0;
+    private int numCleared = 0;
+    private final int[] flashRows = {0, 0, 0, 0};
+    private boolean gameOver = false;
+
+    // Versus play: rows waiting to rise under the well, rows owed to an opponent,
+    // and rows risen so far this game, which picks where each batch has its hole
+    private int garbageIn = 0;
+    private int garbageOut = 0;
+    private int garbageRows = 0;
+
+    private Listener listener = new Listener() {};
+
+    GameEngine() {
+        this(PieceQueue.bag7(), PREVIEW);
+    }
+
+    GameEngine(PieceQueue.Randomizer randomizer, int preview) {
+        pieces = new PieceQueue(preview, randomizer);
+        reset();
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Starts a new game with a fresh seed
+    void reset() {
+        reset(System.nanoTime() ^ Double.doubleToLongBits(Math.random()));
+    }
+
+    // Clears the well and stats and puts the first piece into the dropping position;
+    // games started from the same seed deal the same pieces
+    void reset(long seed) {
+
+        for (int j = 0; j < HEIGHT; j++) {
+            well[j] = (j == HEIGHT-1) ? FULL_ROW : WALL_ROW;
+            Arrays.fill(wellPieces[j], EMPTY);
+        }
+        score = 0;
+        level = 1;
+        clearedLines = 0;
+        numCleared = 0;
+        gameOver = false;
+        garbageIn = 0;
+        garbageOut = 0;
+        garbageRows = 0;
+        pieces.reset(seed);
+        newPiece();
+
+    }//end method reset
+
+    // Applies one player move, returns true if the falling piece or the well changed
+    boolean step(Action action) {
+
+        if (gameOver) {
+            return false;
+        }
+        switch (action) {
+            case LEFT:
+                return slide(-1);
+            case RIGHT:
+                return slide(1);
+            case ROTATE:
+                return rotate();
+            case DROP:
+                dropPiece();
+                return true;
+            case SLAM:
+                slamPiece();
+                return true;
+        }
+        return false;
+
+    }//end method step
+
+    // Applies one step of gravity to the falling piece
+    void tick() {
+
+        if (!gameOver) {
+            dropPiece();
+        }
+
+    }//end method tick
+
+    // Put the next piece from the queue into the dropping position
+    private void newPiece() {
+
+        pieceX = START_X;
+        pieceY = START_Y;
+        rotation = 0;
+        currentPiece = pieces.next();
+
+        if (!isValidMove(pieceX, pieceY+1, rotation)) {
+            gameOver = true;
+            listener.gameOver();
+        }
+
+    }//end method newPiece
+
+    private boolean slide(int direction) {
+
+        if (isValidMove(pieceX+direction, pieceY, rotation)) {
+            pieceX += direction;
+            return true;
+        }
+        return false;
+
+    }//end method slide
+
+    private boolean rotate() {
+
+        int next = (rotation + 1) % PieceTable.ROTATIONS;
+        if (isValidMove(pieceX, pieceY, next)) {
+            rotation = next;
+            return true;
+        }
+        return false;
+
+    }//end method rotate
+
+    private void slamPiece() {
+
+        while (isValidMove(pieceX, pieceY+1, rotation)) {
+            pieceY += 1;
+        }
+        lockPiece();
+
+    }//end method slamPiece
+
+    private void dropPiece() {
+
+        if (isValidMove(pieceX, pieceY+1, rotation)) {
+            pieceY += 1;
+        }
+        else {
+            lockPiece();
+        }
+
+    }//end method dropPiece
+
+    private void lockPiece() {
+
+        PieceTable.lock(well, currentPiece, rotation, pieceX, pieceY);
+        int[] cellX = PieceTable.CELL_X[currentPiece][rotation];
+        int[] cellY = PieceTable.CELL_Y[currentPiece][rotation];
+        for (int k = 0; k < PieceTable.CELLS; k++) {
+            wellPieces[pieceY + cellY[k]][pieceX + cellX[k]] = (byte) currentPiece;
+        }
+        score += pieceY+1;
+        listener.pieceLocked();
+        clearLines();
+        if (numCleared == 0 && garbageIn > 0 && !raiseGarbage()) {
+            gameOver = true;
+            listener.gameOver();
+            return;
+        }
+        newPiece();
+
+    }//end method lockPiece
+
+    private void clearLines() {
+
+        numCleared = 0;
+        for (int j = HEIGHT-2; j >= 0; j--) {
+            if (well[j] == FULL_ROW) {
+                clearedLines++;
+                flashRows[numCleared] = j-numCleared;
+                numCleared++;
+                deleteLine(j);
+                j += 1;
+                if (clearedLines % 10 == 0) {
+                    level++;
+                    listener.levelChanged(level);
+                }
+            }
+        }//end checking for complete lines to clear
+
+        score += linePoints(numCleared, level);
+
+        // Cleared lines first cancel garbage on its way in, the rest goes to the opponent
+        int attack = GARBAGE[numCleared];
+        int cancelled = Math.min(attack, garbageIn);
+        garbageIn -= cancelled;
+        garbageOut += attack - cancelled;
+
+        if (numCleared > 0) {
+            listener.linesCleared(numCleared);
+        }
+
+    }//end method clearLines
+
+    // Score for clearing lines at once at the given level, shared with BatchEngine
+    static int linePoints(int lines, int level) {
+        return LINE_POINTS[lines] * level;
+    }
+
+    // Pushes the well up and fills the bottom with the waiting garbage rows, each open in the
+    // same column; returns false if that pushed cells out of the top
+    private boolean raiseGarbage() {
+
+        int n = garbageIn;
+        garbageIn = 0;
+        boolean overflow = false;
+        for (int j = 0; j < n; j++) {
+            overflow |= well[j] != WALL_ROW;
+        }
+
+        System.arraycopy(well, n, well, 0, HEIGHT-1-n);
+        for (int k = 0; k < n; k++) {
+            // The row pushed out comes back as the new bottom one
+            byte[] recycled = wellPieces[0];
+            System.arraycopy(wellPieces, 1, wellPieces, 0, HEIGHT-2);
+            wellPieces[HEIGHT-2] = recycled;
+        }
+
+        // Drawn without allocating, as rollback replays this
+        int hole = 1 + PieceQueue.Rng.firstInt(pieces.getSeed() ^ garbageRows, WIDTH-2);
+        garbageRows += n;
+        for (int j = HEIGHT-1-n; j < HEIGHT-1; j++) {
+            well[j] = FULL_ROW & ~(1 << hole);
+            Arrays.fill(wellPieces[j], EMPTY);
+            for (int i = 1; i < WIDTH-1; i++) {
+                if (i != hole) {
+                    wellPieces[j][i] = GARBAGE_CELL;
+                }
+            }
+        }
+        return !overflow;
+
+    }//end method raiseGarbage
+
+    // Queues garbage rows from an opponent, rising at the next lock that clears nothing
+    void receiveGarbage(int rows) {
+        garbageIn = Math.min(garbageIn + rows, HEIGHT-1);
+    }
+
+    // Returns the garbage rows owed to opponents since the last call
+    int takeGarbage() {
+
+        int rows = garbageOut;
+        garbageOut = 0;
+        return rows;
+
+    }//end method takeGarbage
+
+    int getPendingGarbage() {
+        return garbageIn;
+    }
+
+    // Shift every row above rowNum down by one, reusing the cleared row as the new top row
+    private void deleteLine(int rowNum) {
+
+        byte[] clearedPieces = wellPieces[rowNum];
+        System.arraycopy(well, 1, well, 2, rowNum-1);
+        System.arraycopy(wellPieces, 1, wellPieces, 2, rowNum-1);
+        well[1] = WALL_ROW;
+        Arrays.fill(clearedPieces, EMPTY);
+        wellPieces[1] = clearedPieces;
+
+    }//end method deleteLine
+
+    private boolean isValidMove(int x, int y, int r) {
+
+        return !PieceTable.collides(well, currentPiece, r, x, y);
+
+    }//end method isValidMove
+
+    // Copies the state the renderer needs into an immutable snapshot
+    BoardSnapshot snapshot() {
+
+        byte[] cells = new byte[HEIGHT*WIDTH];
+        for (int j = 0; j < HEIGHT; j++) {
+            System.arraycopy(wellPieces[j], 0, cells, j*WIDTH, WIDTH);
+        }
+        return new BoardSnapshot(cells, pieceX, pieceY, rotation, currentPiece, pieces.peek(0),
+            score, level, clearedLines, numCleared, flashRows.clone(), gameOver);
+
+    }//end method snapshot
+
+    // Encodes everything needed to carry on this game exactly, returns the position after it;
+    // equal games always encode to equal bytes
+    int writeState(byte[] buf, int pos) {
+
+        // Each row above the floor as its occupied columns, then the piece in each of them
+        for (int j = 0; j < HEIGHT-1; j++) {
+            int cells = well[j] & ~WALL_ROW;
+            pos = Varint.write(buf, pos, cells >>> 1);
+            for (int i = 1; i < WIDTH-1; i++) {
+                if ((cells & (1 << i)) != 0) {
+                    buf[pos++] = wellPieces[j][i];
+                }
+            }
+        }
+        pos = Varint.write(buf, pos, pieceX);
+        pos = Varint.write(buf, pos, pieceY);
+        pos = Varint.write(buf, pos, rotation);
+        pos = Varint.write(buf, pos, currentPiece);
+        pos = Varint.write(buf, pos, score);
+        pos = Varint.write(buf, pos, level);
+        pos = Varint.write(buf, pos, clearedLines);
+        pos = Varint.write(buf, pos, numCleared);
+        for (int i = 0; i < numCleared; i++) {
+            pos = Varint.write(buf, pos, flashRows[i]);
+        }
+        buf[pos++] = (byte) (gameOver ? 1 : 0);
+        pos = Varint.write(buf, pos, garbageIn);
+        pos = Varint.write(buf, pos, garbageOut);
+        pos = Varint.write(buf, pos, garbageRows);
+        return pieces.writeState(buf, pos);
+
+    }//end method writeState
+
+    // Restores a state saved by writeState on an engine with the same randomizer and preview
+    void readState(byte[] buf, int[] pos) {
+
+        for (int j = 0; j < HEIGHT-1; j++) {
+            int cells = (int) Varint.read(buf, pos) << 1;
+            well[j] = WALL_ROW | cells;
+            Arrays.fill(wellPieces[j], EMPTY);
+            for (int i = 1; i < WIDTH-1; i++) {
+                if ((cells & (1 << i)) != 0) {
+                    wellPieces[j][i] = buf[pos[0]++];
+                }
+            }
+        }
+        pieceX = (int) Varint.read(buf, pos);
+        pieceY = (int) Varint.read(buf, pos);
+        rotation = (int) Varint.read(buf, pos);
+        currentPiece = (int) Varint.read(buf, pos);
+        score = Varint.read(buf, pos);
+        level = (int) Varint.read(buf, pos);
+        clearedLines = (int) Varint.read(buf, pos);
+        numCleared = (int) Varint.read(buf, pos);
+        for (int i = 0; i < numCleared; i++) {
+            flashRows[i] = (int) Varint.read(buf, pos);
+        }
+        gameOver = buf[pos[0]++] != 0;
+        garbageIn = (int) Varint.read(buf, pos);
+        garbageOut = (int) Varint.read(buf, pos);
+        garbageRows = (int) Varint.read(buf, pos);
+        pieces.readState(buf, pos);
+
+    }//end method readState
+
+    // True if gravity would lock the falling piece instead of moving it down
+    boolean isGrounded() {
+        return !isValidMove(pieceX, pieceY+1, rotation);
+    }
+
+    int getPieceX() {
+        return pieceX;
+    }
+
+    int getPieceY() {
+        return pieceY;
+    }
+
+    int getRotation() {
+        return rotation;
+    }
+
+    int getCurrentPiece() {
+        return currentPiece;
+    }
+
+    int getPreviewPiece() {
+        return pieces.peek(0);
+    }
+
+    // Piece i places after the falling one, i below getPreviewCount()
+    int getPreview(int i) {
+        return pieces.peek(i);
+    }
+
+    int getPreviewCount() {
+        return pieces.getPreview();
+    }
+
+    // Seed the current game was started from
+    long getSeed() {
+        return pieces.getSeed();
+    }
+
+    // Piece that filled the cell at (col, row), or EMPTY
+    byte getCell(int col, int row) {
+        return wellPieces[row][col];
+    }
+
+    // Occupied-bit mask of a row, including the wall bits
+    int getRow(int row) {
+        return well[row];
+    }
+
+    long getScore() {
+        return score;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    // Only used to pick the starting level before the first piece falls
+    void setLevel(int level) {
+        this.level = level;
+    }
+
+    int getClearedLines() {
+        return clearedLines;
+    }
+
+    int getNumCleared() {
+        return numCleared;
+    }
+
+    int getFlashRow(int i) {
+        return flashRows[i];
+    }
+
+    boolean isGameOver() {
+        return gameOver;
+    }
+
+}//end class GameEngine
@@ -0,0 +1,423 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.DayOfWeek;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Leaderboard over the score log, indexed by score for top lists and
+ *          ranks and by time for date-range bests, updated as each game ends
+ */
+
+final class Leaderboard {
+
+    // Entries per block of the score index, a block splits when it doubles
+    private static final int BLOCK = 512;
+
+    // Records per block of the time index
+    private static final int RANGE_BLOCK = 1024;
+
+    // Index file layout: magic, record count, then the record numbers in score order
+    private static final int INDEX_MAGIC = 0x54494458;
+    private static final int INDEX_HEADER = 8;
+
+    // One slice of the score index, best score first, ties in the order they were played
+    private static final class Block {
+        long[] scores = new long[2*BLOCK];
+        int[] records = new int[2*BLOCK];
+        int size = 0;
+    }
+
+    private final ScoreLog log;
+    private final File indexFile;
+
+    // Records that were in the log when it was opened, read in place
+    private final MappedByteBuffer mapped;
+    private final int mappedCount;
+
+    // Records added since then
+    private final List<ScoreLog.Record> added = new ArrayList<>();
+    private int count;
+
+    // Bumped by every add, so readers can tell when a cached view is stale
+    private volatile long version = 0;
+
+    // Score index, every record number ordered by score across the blocks
+    private final List<Block> blocks = new ArrayList<>();
+
+    // Time index: the log is in the order games ended, so record numbers are already
+    // in time order, and each entry here is the best record of RANGE_BLOCK of them
+    private int[] rangeBest = new int[16];
+
+    Leaderboard(File logFile, File indexFile) throws IOException {
+
+        this.indexFile = indexFile;
+        log = new ScoreLog(logFile);
+        mapped = log.map();
+        mappedCount = (int) log.getRecovered();
+        count = mappedCount;
+
+        if (!loadIndex()) {
+            buildIndex();
+        }
+        for (int n = 0; n < count; n++) {
+            indexTime(n);
+        }
+        log.start();
+
+    }//end constructor
+
+    // Logs a finished game and indexes it
+    synchronized void add(ScoreLog.Record record) {
+
+        log.append(record);
+        added.add(record);
+        int n = count++;
+        insertScore(record.score, n);
+        indexTime(n);
+        version++;
+
+    }//end method add
+
+    // Syncs the log and saves the score index so the next start can skip the sort
+    synchronized void close() {
+
+        log.close();
+        try {
+            saveIndex();
+        } catch (IOException e) {
+            System.err.println("Leaderboard index " + indexFile + ": save failed, " + e.getMessage());
+        }
+
+    }//end method close
+
+    long getVersion() {
+        return version;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    // The n best games, best first
+    synchronized List<ScoreLog.Record> top(int n) {
+
+        List<ScoreLog.Record> top = new ArrayList<>(Math.min(n, count));
+        for (Block block : blocks) {
+            for (int k = 0; k < block.size && top.size() < n; k++) {
+                top.add(record(block.records[k]));
+            }
+            if (top.size() == n) {
+                break;
+            }
+        }
+        return top;
+
+    }//end method top
+
+    // Place a game with this score holds, 1 for the best; equal scores share a place
+    synchronized int rank(long score) {
+
+        int above = 0;
+        for (Block block : blocks) {
+            if (block.scores[block.size-1] > score) {
+                above += block.size;
+            }
+            else {
+                above += countAbove(block, score);
+                break;
+            }
+        }
+        return above + 1;
+
+    }//end method rank
+
+    // Best game that ended at or after from and before to, or null if there was none
+    synchronized ScoreLog.Record best(long from, long to) {
+
+        int lo = firstAtOrAfter(from);
+        int hi = firstAtOrAfter(to);
+        if (lo >= hi) {
+            return null;
+        }
+
+        int best = lo;
+        int n = lo;
+        while (n < hi) {
+            if (n % RANGE_BLOCK == 0 && n + RANGE_BLOCK <= hi) {
+                best = better(best, rangeBest[n / RANGE_BLOCK]);
+                n += RANGE_BLOCK;
+            }
+            else {
+                best = better(best, n);
+                n++;
+            }
+        }
+        return record(best);
+
+    }//end method best
+
+    // Best game since midnight on the most recent Monday, local time
+    ScoreLog.Record bestThisWeek() {
+
+        ZonedDateTime now = ZonedDateTime.now(ZoneId.systemDefault());
+        ZonedDateTime monday = now.truncatedTo(ChronoUnit.DAYS)
+            .minusDays(now.getDayOfWeek().getValue() - DayOfWeek.MONDAY.getValue());
+        return best(monday.toInstant().toEpochMilli(), Long.MAX_VALUE);
+
+    }//end method bestThisWeek
+
+    private ScoreLog.Record record(int n) {
+        return n < mappedCount ? ScoreLog.read(mapped, n) : added.get(n - mappedCount);
+    }
+
+    private long scoreOf(int n) {
+        return n < mappedCount ? ScoreLog.scoreAt(mapped, n) : added.get(n - mappedCount).score;
+    }
+
+    private long timeOf(int n) {
+        return n < mappedCount ? ScoreLog.timeAt(mapped, n) : added.get(n - mappedCount).time;
+    }
+
+    // Of two records, the higher score, or the earlier one on a tie
+    private int better(int a, int b) {
+
+        long sa = scoreOf(a);
+        long sb = scoreOf(b);
+        return (sb > sa || (sb == sa && b < a)) ? b : a;
+
+    }//end method better
+
+    // First record number whose game ended at or after time, or count if none did
+    private int firstAtOrAfter(long time) {
+
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeOf(mid) < time) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+
+    }//end method firstAtOrAfter
+
+    private void indexTime(int n) {
+
+        int b = n / RANGE_BLOCK;
+        if (b >= rangeBest.length) {
+            int[] grown = new int[rangeBest.length * 2];
+            System.arraycopy(rangeBest, 0, grown, 0, rangeBest.length);
+            rangeBest = grown;
+        }
+        rangeBest[b] = (n % RANGE_BLOCK == 0) ? n : better(rangeBest[b], n);
+
+    }//end method indexTime
+
+    // Entries in a block with a score strictly higher than score
+    private static int countAbove(Block block, long score) {
+
+        int lo = 0;
+        int hi = block.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (block.scores[mid] > score) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+
+    }//end method countAbove
+
+    // Adds the newest record behind every entry with the same or a better score
+    private void insertScore(long score, int n) {
+
+        if (blocks.isEmpty()) {
+            blocks.add(new Block());
+        }
+        int b = 0;
+        while (b < blocks.size() - 1 && blocks.get(b).scores[blocks.get(b).size-1] >= score) {
+            b++;
+        }
+        Block block = blocks.get(b);
+        int at = block.size;
+        while (at > 0 && block.scores[at-1] < score) {
+            at--;
+        }
+        System.arraycopy(block.scores, at, block.scores, at+1, block.size - at);
+        System.arraycopy(block.records, at, block.records, at+1, block.size - at);
+        block.scores[at] = score;
+        block.records[at] = n;
+        block.size++;
+
+        if (block.size == 2*BLOCK) {
+            Block upper = new Block();
+            System.arraycopy(block.scores, BLOCK, upper.scores, 0, BLOCK);
+            System.arraycopy(block.records, BLOCK, upper.records, 0, BLOCK);
+            upper.size = BLOCK;
+            block.size = BLOCK;
+            blocks.add(b+1, upper);
+        }
+
+    }//end method insertScore
+
+    // Appends to the score index while it is being filled in order
+    private void appendScore(long score, int n) {
+
+        Block last = blocks.isEmpty() ? null : blocks.get(blocks.size()-1);
+        if (last == null || last.size == BLOCK) {
+            last = new Block();
+            blocks.add(last);
+        }
+        last.scores[last.size] = score;
+        last.records[last.size] = n;
+        last.size++;
+
+    }//end method appendScore
+
+    // Reads the saved score index and indexes whatever was logged after it was saved;
+    // returns false if there is no usable index
+    private boolean loadIndex() throws IOException {
+
+        if (!indexFile.isFile()) {
+            return false;
+        }
+        try (FileChannel channel = new RandomAccessFile(indexFile, "r").getChannel()) {
+            long size = channel.size();
+            if (size < INDEX_HEADER) {
+                return false;
+            }
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int indexed = index.getInt(4);
+            if (index.getInt(0) != INDEX_MAGIC || indexed < 0 || indexed > count
+                    || size != INDEX_HEADER + 4L*indexed) {
+                return false;
+            }
+
+            // Check the order as it is read, so a stale or damaged index is rebuilt instead of trusted
+            boolean[] seen = new boolean[indexed];
+            long previous = Long.MAX_VALUE;
+            for (int k = 0; k < indexed; k++) {
+                int n = index.getInt(INDEX_HEADER + 4*k);
+                if (n < 0 || n >= indexed || seen[n]) {
+                    blocks.clear();
+                    return false;
+                }
+                long score = scoreOf(n);
+                if (score > previous) {
+                    blocks.clear();
+                    return false;
+                }
+                seen[n] = true;
+                previous = score;
+                appendScore(score, n);
+            }
+
+            for (int n = indexed; n < count; n++) {
+                insertScore(scoreOf(n), n);
+            }
+        }
+        return true;
+
+    }//end method loadIndex
+
+    // Sorts every logged record by score
+    private void buildIndex() {
+
+        int[] order = new int[count];
+        long[] scores = new long[count];
+        for (int n = 0; n < count; n++) {
+            order[n] = n;
+            scores[n] = scoreOf(n);
+        }
+        mergeSort(order, scores, new int[count], new long[count]);
+        blocks.clear();
+        for (int k = 0; k < count; k++) {
+            appendScore(scores[k], order[k]);
+        }
+
+    }//end method buildIndex
+
+    // Stable bottom-up merge sort of records by score, best first
+    private static void mergeSort(int[] order, long[] scores, int[] orderTmp, long[] scoresTmp) {
+
+        int length = order.length;
+        for (int width = 1; width < length; width *= 2) {
+            for (int lo = 0; lo < length; lo += 2*width) {
+                int mid = Math.min(lo + width, length);
+                int hi = Math.min(lo + 2*width, length);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (j >= hi || (i < mid && scores[i] >= scores[j])) {
+                        orderTmp[k] = order[i];
+                        scoresTmp[k] = scores[i++];
+                    }
+                    else {
+                        orderTmp[k] = order[j];
+                        scoresTmp[k] = scores[j++];
+                    }
+                }
+            }
+            System.arraycopy(orderTmp, 0, order, 0, length);
+            System.arraycopy(scoresTmp, 0, scores, 0, length);
+        }
+
+    }//end method mergeSort
+
+    // Writes the score index beside the log and swaps it in whole
+    private void saveIndex() throws IOException {
+
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        try (FileChannel channel = new RandomAccessFile(tmp, "rw").getChannel()) {
+            channel.truncate(0);
+            ByteBuffer buf = ByteBuffer.allocate(INDEX_HEADER + 4*BLOCK*2);
+            buf.putInt(INDEX_MAGIC);
+            buf.putInt(count);
+            for (Block block : blocks) {
+                for (int k = 0; k < block.size; k++) {
+                    if (!buf.hasRemaining()) {
+                        flush(channel, buf);
+                    }
+                    buf.putInt(block.records[k]);
+                }
+            }
+            flush(channel, buf);
+            channel.force(true);
+        }
+        Files.move(tmp.toPath(), indexFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    }//end method saveIndex
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+
+    }//end method flush
+
+}//end class Leaderboard
@@ -0,0 +1,264 @@
+package game;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Small HTTP server that shows the leaderboard as a web page and as
+ *          JSON, rendering each page once per new score and serving the copy
+ */
+
+final class LeaderboardServer {
+
+    // Games listed on the page
+    static final int TOP = 100;
+
+    // Worker threads; requests only copy out a cached page, so a few serve many boards
+    private static final int THREADS = 4;
+
+    // Connections the OS queues while every worker is busy
+    private static final int BACKLOG = 256;
+
+    // A cached page is rebuilt after this long even without a new score, so "this week" rolls over
+    private static final long MAX_AGE = 60_000_000_000L;
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("MMM d, yyyy");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("h:mm a");
+
+    // A rendered page and the leaderboard version it shows
+    private static final class Page {
+        final byte[] body;
+        final long version;
+        final long built;
+
+        Page(byte[] body, long version, long built) {
+            this.body = body;
+            this.version = version;
+            this.built = built;
+        }
+    }
+
+    private final Leaderboard leaderboard;
+    private final HttpServer server;
+    private final ExecutorService workers;
+    private volatile Page html;
+    private volatile Page json;
+
+    LeaderboardServer(Leaderboard leaderboard, int port) throws IOException {
+
+        this.leaderboard = leaderboard;
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+
+        // Low priority daemons, so page requests never take time from the game or render threads
+        AtomicInteger workerCount = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(THREADS, task -> {
+            Thread worker = new Thread(task, "scoresHttp-" + workerCount.incrementAndGet());
+            worker.setDaemon(true);
+            worker.setPriority(Thread.MIN_PRIORITY);
+            return worker;
+        });
+        server.setExecutor(workers);
+
+        server.createContext("/", exchange -> {
+            if (!exchange.getRequestURI().getPath().equals("/")) {
+                send(exchange, 404, "text/plain", "Not found".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            html = fresh(html, false);
+            send(exchange, 200, "text/html; charset=utf-8", html.body);
+        });
+        server.createContext("/scores.json", exchange -> {
+            json = fresh(json, true);
+            send(exchange, 200, "application/json", json.body);
+        });
+        server.createContext("/rank", exchange -> {
+            // e.g. /rank?score=12000, cheap enough to answer without a cache
+            byte[] usage = "Expected ?score=<number>".getBytes(StandardCharsets.UTF_8);
+            String value = parameter(exchange.getRequestURI().getQuery(), "score");
+            if (value == null) {
+                send(exchange, 400, "text/plain", usage);
+                return;
+            }
+            long score;
+            try {
+                score = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                send(exchange, 400, "text/plain", usage);
+                return;
+            }
+            String body = "{\"score\":" + score + ",\"rank\":" + leaderboard.rank(score)
+                + ",\"games\":" + leaderboard.size() + "}";
+            send(exchange, 200, "application/json", body.getBytes(StandardCharsets.UTF_8));
+        });
+
+    }//end constructor
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+
+        server.stop(0);
+        workers.shutdown();
+
+    }//end method stop
+
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Value of the first name=value pair in the decoded query, null if the query or the name is missing
+    private static String parameter(String query, String name) {
+
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = (eq < 0) ? pair : pair.substring(0, eq);
+            if (key.equals(name)) {
+                return (eq < 0) ? "" : pair.substring(eq + 1);
+            }
+        }
+        return null;
+
+    }//end method parameter
+
+    // Returns the cached page, or renders a new one if a score was added or it aged out
+    private Page fresh(Page page, boolean asJson) {
+
+        long version = leaderboard.getVersion();
+        long now = System.nanoTime();
+        if (page != null && page.version == version && now - page.built < MAX_AGE) {
+            return page;
+        }
+        // Concurrent misses may each render, they produce the same page
+        String body = asJson ? renderJson() : renderHtml();
+        return new Page(body.getBytes(StandardCharsets.UTF_8), version, now);
+
+    }//end method fresh
+
+    private static void send(HttpExchange exchange, int status, String type, byte[] body) throws IOException {
+
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", type);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+
+    }//end method send
+
+    private String renderHtml() {
+
+        List<ScoreLog.Record> top = leaderboard.top(TOP);
+        ScoreLog.Record week = leaderboard.bestThisWeek();
+
+        StringBuilder sb = new StringBuilder(16 * 1024);
+        sb.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\">")
+            .append("<meta http-equiv=\"refresh\" content=\"30\">")
+            .append("<title>tEVtris High Scores</title>")
+            .append("<style>body{font-family:sans-serif;background:#111;color:#eee;text-align:center}")
+            .append("table{margin:auto;border-collapse:collapse}td,th{padding:4px 14px}")
+            .append("tr:nth-child(even){background:#222}td.n{text-align:right}</style>")
+            .append("</head><body>\n<h1>tEVtris High Scores</h1>\n");
+
+        if (week != null) {
+            sb.append("<h2>Best this week: ").append(String.format("%,d", week.score))
+                .append(" on ").append(format(DATE, week.time)).append("</h2>\n");
+        }
+
+        sb.append("<table>\n<tr><th>#</th><th>Score</th><th>Level</th><th>Lines</th>")
+            .append("<th>Date</th><th>Time</th></tr>\n");
+        int place = 0;
+        long previous = Long.MIN_VALUE;
+        for (int k = 0; k < top.size(); k++) {
+            ScoreLog.Record record = top.get(k);
+            if (record.score != previous) {
+                place = k + 1;
+                previous = record.score;
+            }
+            sb.append("<tr><td class=\"n\">").append(place)
+                .append("</td><td class=\"n\">").append(String.format("%,d", record.score))
+                .append("</td><td class=\"n\">").append(record.level)
+                .append("</td><td class=\"n\">").append(record.lines)
+                .append("</td><td>").append(format(DATE, record.time))
+                .append("</td><td>").append(format(TIME, record.time))
+                .append("</td></tr>\n");
+        }
+        sb.append("</table>\n<p>").append(String.format("%,d", leaderboard.size()))
+            .append(" games played</p>\n</body></html>\n");
+        return sb.toString();
+
+    }//end method renderHtml
+
+    private String renderJson() {
+
+        List<ScoreLog.Record> top = leaderboard.top(TOP);
+        ScoreLog.Record week = leaderboard.bestThisWeek();
+
+        StringBuilder sb = new StringBuilder(8 * 1024);
+        sb.append("{\"games\":").append(leaderboard.size());
+        sb.append(",\"bestThisWeek\":");
+        if (week == null) {
+            sb.append("null");
+        }
+        else {
+            appendJson(sb, week);
+        }
+        sb.append(",\"top\":[");
+        for (int k = 0; k < top.size(); k++) {
+            if (k > 0) {
+                sb.append(',');
+            }
+            appendJson(sb, top.get(k));
+        }
+        sb.append("]}");
+        return sb.toString();
+
+    }//end method renderJson
+
+    private static void appendJson(StringBuilder sb, ScoreLog.Record record) {
+
+        sb.append("{\"score\":").append(record.score)
+            .append(",\"level\":").append(record.level)
+            .append(",\"lines\":").append(record.lines)
+            .append(",\"time\":").append(record.time)
+            .append('}');
+
+    }//end method appendJson
+
+    private static String format(DateTimeFormatter formatter, long time) {
+        return formatter.format(Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()));
+    }
+
+}//end class LeaderboardServer
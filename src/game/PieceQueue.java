@@ -0,0 +1,277 @@
+package game;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Seeded source of upcoming pieces, a ring buffer of the next few
+ *          pieces filled by a pluggable randomizer, with no allocation per piece
+ */
+
+final class PieceQueue {
+
+    // SplitMix64, small and fast with a 64-bit state that fully determines the sequence
+    static final class Rng {
+        private long state;
+
+        Rng(long seed) {
+            state = seed;
+        }
+
+        long getState() {
+            return state;
+        }
+
+        void setState(long state) {
+            this.state = state;
+        }
+
+        long nextLong() {
+            return mix(state += 0x9E3779B97F4A7C15L);
+        }
+
+        // Uniform in [0, bound), bound must be small and positive
+        int nextInt(int bound) {
+            return (int) (((nextLong() >>> 32) * bound) >>> 32);
+        }
+
+        // What new Rng(seed).nextInt(bound) gives, without allocating one
+        static int firstInt(long seed, int bound) {
+            return (int) (((mix(seed + 0x9E3779B97F4A7C15L) >>> 32) * bound) >>> 32);
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+
+    // Picks each next piece; state lives in the randomizer so a game can be replayed from its seed
+    interface Randomizer {
+        // Back to the start of a game
+        void reset();
+        int next(Rng rng);
+        // Saves and restores the randomizer's place, for keyframes and snapshots
+        int writeState(byte[] buf, int pos);
+        void readState(byte[] buf, int[] pos);
+    }
+
+    // Deals every piece once per bag in shuffled order; copies > 1 gives e.g. the 14-bag
+    static final class Bag implements Randomizer {
+        private final int[] bag;
+        private int pos;
+
+        Bag(int copies) {
+            bag = new int[PieceTable.PIECES * copies];
+            pos = bag.length;
+        }
+
+        @Override
+        public void reset() {
+            pos = bag.length;
+        }
+
+        @Override
+        public int next(Rng rng) {
+            if (pos == bag.length) {
+                for (int k = 0; k < bag.length; k++) {
+                    bag[k] = k % PieceTable.PIECES;
+                }
+                // Fisher-Yates
+                for (int k = bag.length - 1; k > 0; k--) {
+                    int j = rng.nextInt(k + 1);
+                    int t = bag[k];
+                    bag[k] = bag[j];
+                    bag[j] = t;
+                }
+                pos = 0;
+            }
+            return bag[pos++];
+        }
+
+        @Override
+        public int writeState(byte[] buf, int at) {
+            at = Varint.write(buf, at, pos);
+            for (int k = pos; k < bag.length; k++) {
+                buf[at++] = (byte) bag[k];
+            }
+            return at;
+        }
+
+        @Override
+        public void readState(byte[] buf, int[] at) {
+            pos = (int) Varint.read(buf, at);
+            for (int k = pos; k < bag.length; k++) {
+                bag[k] = buf[at[0]++];
+            }
+        }
+    }
+
+    // Rerolls a few times to avoid the last pieces dealt, as in the arcade games;
+    // the first piece is never an S, Z or O
+    static final class History implements Randomizer {
+        private static final int[] FIRST = {0, 1, 2, 6};
+        private static final int[] START = {5, 4, 5, 4};
+
+        private final int[] history;
+        private final int rolls;
+        private int oldest;
+        private boolean first;
+
+        History(int size, int rolls) {
+            history = new int[size];
+            this.rolls = rolls;
+            reset();
+        }
+
+        @Override
+        public void reset() {
+            for (int k = 0; k < history.length; k++) {
+                history[k] = START[k % START.length];
+            }
+            oldest = 0;
+            first = true;
+        }
+
+        @Override
+        public int next(Rng rng) {
+            int piece;
+            if (first) {
+                first = false;
+                piece = FIRST[rng.nextInt(FIRST.length)];
+            }
+            else {
+                piece = rng.nextInt(PieceTable.PIECES);
+                for (int roll = 1; roll < rolls && inHistory(piece); roll++) {
+                    piece = rng.nextInt(PieceTable.PIECES);
+                }
+            }
+            history[oldest] = piece;
+            oldest = (oldest + 1) % history.length;
+            return piece;
+        }
+
+        @Override
+        public int writeState(byte[] buf, int pos) {
+            for (int k = 0; k < history.length; k++) {
+                buf[pos++] = (byte) history[(oldest + k) % history.length];
+            }
+            buf[pos++] = (byte) (first ? 1 : 0);
+            return pos;
+        }
+
+        @Override
+        public void readState(byte[] buf, int[] pos) {
+            for (int k = 0; k < history.length; k++) {
+                history[k] = buf[pos[0]++];
+            }
+            oldest = 0;
+            first = buf[pos[0]++] != 0;
+        }
+
+        private boolean inHistory(int piece) {
+            for (int p : history) {
+                if (p == piece) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static Randomizer bag7() {
+        return new Bag(1);
+    }
+
+    static Randomizer bag14() {
+        return new Bag(2);
+    }
+
+    static Randomizer history() {
+        return new History(4, 6);
+    }
+
+    private final Randomizer randomizer;
+    private final Rng rng = new Rng(0);
+    private final int preview;
+    private long seed;
+
+    // Upcoming pieces, ring[head & mask] is the next one
+    private final int[] ring;
+    private final int mask;
+    private int head = 0;
+
+    // Shows preview pieces ahead, at least one since the next piece is always on show
+    PieceQueue(int preview, Randomizer randomizer) {
+
+        if (preview < 1) {
+            throw new IllegalArgumentException("Preview of " + preview + " pieces, needs at least 1");
+        }
+        this.preview = preview;
+        this.randomizer = randomizer;
+        // A power of two above preview, so the piece dealt and the one refilled never share a slot
+        ring = new int[Integer.highestOneBit(preview) * 2];
+        mask = ring.length - 1;
+        reset(0);
+
+    }//end constructor
+
+    // Starts the sequence over; the same seed always deals the same pieces
+    void reset(long seed) {
+
+        this.seed = seed;
+        rng.setState(seed);
+        randomizer.reset();
+        head = 0;
+        for (int k = 0; k < preview; k++) {
+            ring[k & mask] = randomizer.next(rng);
+        }
+
+    }//end method reset
+
+    // Deals the next piece and tops the preview back up
+    int next() {
+
+        int piece = ring[head & mask];
+        ring[(head + preview) & mask] = randomizer.next(rng);
+        head++;
+        return piece;
+
+    }//end method next
+
+    // Saves the generator, the randomizer and the pieces already dealt into the preview
+    int writeState(byte[] buf, int pos) {
+
+        pos = Varint.write(buf, pos, rng.getState());
+        for (int k = 0; k < preview; k++) {
+            buf[pos++] = (byte) peek(k);
+        }
+        return randomizer.writeState(buf, pos);
+
+    }//end method writeState
+
+    void readState(byte[] buf, int[] pos) {
+
+        rng.setState(Varint.read(buf, pos));
+        head = 0;
+        for (int k = 0; k < preview; k++) {
+            ring[k] = buf[pos[0]++];
+        }
+        randomizer.readState(buf, pos);
+
+    }//end method readState
+
+    // Piece i places after the next one, i below getPreview()
+    int peek(int i) {
+        return ring[(head + i) & mask];
+    }
+
+    int getPreview() {
+        return preview;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+}//end class PieceQueue
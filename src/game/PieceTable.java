@@ -0,0 +1,207 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Compile the tetramino blueprints once into integer lookup tables
+ *          so collision and locking never touch the shape definitions
+ */
+
+final class PieceTable {
+
+    static final int PIECES = 7;
+    static final int ROTATIONS = 4;
+    static final int CELLS = 4;
+
+    // Number of horizontal origins a piece can be tested at, x = 0 through 11
+    static final int OFFSETS = 12;
+
+    // Blueprint for each tetramino shape and rotation as {x, y} cell offsets
+    private static final int[][][][] BLUEPRINTS = {
+        // I-piece
+        {
+            {{0,0}, {1,0}, {2,0}, {3,0}},
+            {{1,0}, {1,1}, {1,2}, {1,3}},
+            {{0,0}, {1,0}, {2,0}, {3,0}},
+            {{1,0}, {1,1}, {1,2}, {1,3}}
+        },
+        // J-piece
+        {
+            {{0,0}, {1,0}, {2,0}, {2,1}},
+            {{0,2}, {1,2}, {1,1}, {1,0}},
+            {{0,0}, {0,1}, {1,1}, {2,1}},
+            {{1,2}, {1,1}, {1,0}, {2,0}}
+        },
+        // L-piece
+        {
+            {{0,1}, {0,0}, {1,0}, {2,0}},
+            {{0,0}, {1,0}, {1,1}, {1,2}},
+            {{0,1}, {1,1}, {2,1}, {2,0}},
+            {{1,0}, {1,1}, {1,2}, {2,2}}
+        },
+        // O-piece
+        {
+            {{1,0}, {1,1}, {2,0}, {2,1}},
+            {{1,0}, {1,1}, {2,0}, {2,1}},
+            {{1,0}, {1,1}, {2,0}, {2,1}},
+            {{1,0}, {1,1}, {2,0}, {2,1}}
+        },
+        // S-piece
+        {
+            {{0,1}, {1,1}, {1,0}, {2,0}},
+            {{1,0}, {1,1}, {2,1}, {2,2}},
+            {{0,1}, {1,1}, {1,0}, {2,0}},
+            {{1,0}, {1,1}, {2,1}, {2,2}}
+        },
+        // Z-piece
+        {
+            {{0,0}, {1,0}, {1,1}, {2,1}},
+            {{1,2}, {1,1}, {2,1}, {2,0}},
+            {{0,0}, {1,0}, {1,1}, {2,1}},
+            {{1,2}, {1,1}, {2,1}, {2,0}}
+        },
+        // T-piece
+        {
+            {{0,0}, {1,0}, {1,1}, {2,0}},
+            {{0,1}, {1,0}, {1,1}, {1,2}},
+            {{0,1}, {1,1}, {1,0}, {2,1}},
+            {{1,0}, {1,1}, {1,2}, {2,1}}
+        }
+    };
+
+    // Cell offsets of each piece and rotation, [piece][rotation][cell]
+    static final int[][][] CELL_X = new int[PIECES][ROTATIONS][CELLS];
+    static final int[][][] CELL_Y = new int[PIECES][ROTATIONS][CELLS];
+
+    // Bounding box of each piece and rotation, [piece][rotation]
+    static final int[][] MIN_X = new int[PIECES][ROTATIONS];
+    static final int[][] MAX_X = new int[PIECES][ROTATIONS];
+    static final int[][] MIN_Y = new int[PIECES][ROTATIONS];
+    static final int[][] MAX_Y = new int[PIECES][ROTATIONS];
+
+    // Lowest occupied row in each of the 4 blueprint columns, -1 if the column is empty
+    static final int[][][] BOTTOM = new int[PIECES][ROTATIONS][CELLS];
+
+    // Row masks shifted to every origin, [piece][rotation][x][row]
+    static final int[][][][] ROW_MASKS = new int[PIECES][ROTATIONS][OFFSETS][CELLS];
+
+    static {
+        for (int p = 0; p < PIECES; p++) {
+            for (int r = 0; r < ROTATIONS; r++) {
+                compile(p, r);
+            }
+        }
+    }
+
+    private PieceTable() {
+    }
+
+    private static void compile(int p, int r) {
+
+        int[][] cells = BLUEPRINTS[p][r];
+        if (cells.length != CELLS) {
+            throw new IllegalStateException("Piece " + p + " rotation " + r + " does not have 4 cells");
+        }
+
+        int shape = 0;
+        int minX = CELLS, maxX = -1, minY = CELLS, maxY = -1;
+        int[] bottom = BOTTOM[p][r];
+        Arrays.fill(bottom, -1);
+
+        for (int k = 0; k < CELLS; k++) {
+            int x = cells[k][0];
+            int y = cells[k][1];
+            if (x < 0 || x >= CELLS || y < 0 || y >= CELLS) {
+                throw new IllegalStateException("Piece " + p + " rotation " + r + " leaves its 4x4 box");
+            }
+            int bit = 1 << (y*CELLS + x);
+            if ((shape & bit) != 0) {
+                throw new IllegalStateException("Piece " + p + " rotation " + r + " repeats a cell");
+            }
+            shape |= bit;
+
+            CELL_X[p][r][k] = x;
+            CELL_Y[p][r][k] = y;
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            bottom[x] = Math.max(bottom[x], y);
+            for (int offset = 0; offset < OFFSETS; offset++) {
+                ROW_MASKS[p][r][offset][y] |= 1 << (offset + x);
+            }
+        }
+
+        if (!isConnected(shape, cells[0][0], cells[0][1])) {
+            throw new IllegalStateException("Piece " + p + " rotation " + r + " is not connected");
+        }
+
+        MIN_X[p][r] = minX;
+        MAX_X[p][r] = maxX;
+        MIN_Y[p][r] = minY;
+        MAX_Y[p][r] = maxY;
+
+    }//end method compile
+
+    // Flood fill from one cell of the 4x4 shape mask and check every cell was reached
+    private static boolean isConnected(int shape, int x, int y) {
+
+        int seen = 0;
+        int[] stack = new int[CELLS*CELLS + 1];
+        int top = 0;
+        stack[top++] = y*CELLS + x;
+        while (top > 0) {
+            int cell = stack[--top];
+            if ((seen & (1 << cell)) != 0 || (shape & (1 << cell)) == 0) {
+                continue;
+            }
+            seen |= 1 << cell;
+            int cx = cell % CELLS;
+            int cy = cell / CELLS;
+            if (cx > 0) stack[top++] = cell - 1;
+            if (cx < CELLS-1) stack[top++] = cell + 1;
+            if (cy > 0) stack[top++] = cell - CELLS;
+            if (cy < CELLS-1) stack[top++] = cell + CELLS;
+        }
+        return seen == shape;
+
+    }//end method isConnected
+
+    // True if the piece overlaps an occupied bit of the well with its origin at (x, y)
+    static boolean collides(int[] well, int piece, int rotation, int x, int y) {
+        return collides(well, 0, piece, rotation, x, y);
+    }
+
+    // Same, for a well stored from index base of a larger array
+    static boolean collides(int[] wells, int base, int piece, int rotation, int x, int y) {
+
+        if (x < 0 || x >= OFFSETS) {
+            return true;
+        }
+        int[] masks = ROW_MASKS[piece][rotation][x];
+        for (int k = MIN_Y[piece][rotation]; k <= MAX_Y[piece][rotation]; k++) {
+            if ((wells[base + y + k] & masks[k]) != 0) {
+                return true;
+            }
+        }
+        return false;
+
+    }//end method collides
+
+    // Set the bits of the piece into the well with its origin at (x, y)
+    static void lock(int[] well, int piece, int rotation, int x, int y) {
+        lock(well, 0, piece, rotation, x, y);
+    }
+
+    static void lock(int[] wells, int base, int piece, int rotation, int x, int y) {
+
+        int[] masks = ROW_MASKS[piece][rotation][x];
+        for (int k = MIN_Y[piece][rotation]; k <= MAX_Y[piece][rotation]; k++) {
+            wells[base + y + k] |= masks[k];
+        }
+
+    }//end method lock
+
+}//end class PieceTable
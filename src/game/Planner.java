@@ -0,0 +1,50 @@
+package game;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: A computer player, choosing the moves that place the falling piece
+ */
+
+interface Planner {
+
+    // Most moves a plan can take: three rotations, a slide across the well and the slam
+    int MAX_MOVES = 3 + GameEngine.WIDTH + 1;
+
+    // Fills moves with the actions that take the falling piece to its chosen placement,
+    // ending with a slam, and returns how many there are; 0 if the game is over
+    int plan(GameEngine engine, GameEngine.Action[] moves);
+
+    // Plays the engine's game until it ends or maxPieces have been placed, returns the pieces placed
+    default long play(GameEngine engine, long maxPieces) {
+
+        GameEngine.Action[] moves = new GameEngine.Action[MAX_MOVES];
+        long pieces = 0;
+        while (pieces < maxPieces && !engine.isGameOver()) {
+            int n = plan(engine, moves);
+            for (int k = 0; k < n; k++) {
+                engine.step(moves[k]);
+            }
+            pieces++;
+        }
+        return pieces;
+
+    }//end method play
+
+    // Writes the rotations, slides and slam that reach column toX, returns how many moves
+    static int moves(int turns, int fromX, int toX, GameEngine.Action[] moves) {
+
+        int n = 0;
+        for (int k = 0; k < turns; k++) {
+            moves[n++] = GameEngine.Action.ROTATE;
+        }
+        GameEngine.Action slide = (toX < fromX) ? GameEngine.Action.LEFT : GameEngine.Action.RIGHT;
+        for (int k = 0; k < Math.abs(toX - fromX); k++) {
+            moves[n++] = slide;
+        }
+        moves[n++] = GameEngine.Action.SLAM;
+        return n;
+
+    }//end method moves
+
+}//end interface Planner
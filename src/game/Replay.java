@@ -0,0 +1,196 @@
+package game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: A recorded game: the seed and start level, every move and gravity
+ *          tick as a varint-packed (tick, event) stream, then the result, with
+ *          periodic keyframes of the whole game state for seeking
+ */
+
+final class Replay {
+
+    // File layout: magic, version, seed, start level, the events, the keyframes,
+    // the keyframe index, and last the index offset and magic again so it can be found from the end
+    private static final int MAGIC = 0x54565250;
+    private static final int VERSION = 3;
+
+    // Event codes; 0 to 4 are GameEngine.Action ordinals
+    static final int GRAVITY = 5;
+    static final int END = 7;
+    static final int CODE_BITS = 3;
+
+    private final long seed;
+    private final int startLevel;
+
+    // Varint events ending with END, followed by the varint score, level and lines
+    private final byte[] events;
+
+    // Saved game states, see GameEngine.writeState; keyframe k is the state after every
+    // event before frameEvents[k] was applied, at game tick frameTicks[k]
+    private final byte[] frames;
+    private final long[] frameTicks;
+    private final int[] frameEvents;
+    private final int[] frameOffsets;
+
+    private final long score;
+    private final int level;
+    private final int lines;
+
+    Replay(long seed, int startLevel, byte[] events, byte[] frames, long[] frameTicks,
+           int[] frameEvents, int[] frameOffsets) {
+        this.seed = seed;
+        this.startLevel = startLevel;
+        this.events = events;
+        this.frames = frames;
+        this.frameTicks = frameTicks;
+        this.frameEvents = frameEvents;
+        this.frameOffsets = frameOffsets;
+
+        // The result follows the END event, find it by skipping the events
+        int[] pos = {0};
+        long event;
+        do {
+            event = Varint.read(events, pos);
+        } while ((event & ((1 << CODE_BITS) - 1)) != END);
+        score = Varint.read(events, pos);
+        level = (int) Varint.read(events, pos);
+        lines = (int) Varint.read(events, pos);
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    int getStartLevel() {
+        return startLevel;
+    }
+
+    byte[] getEvents() {
+        return events;
+    }
+
+    int getKeyframeCount() {
+        return frameTicks.length;
+    }
+
+    long getKeyframeTick(int k) {
+        return frameTicks[k];
+    }
+
+    // Offset into getEvents() of the first event after keyframe k
+    int getKeyframeEvent(int k) {
+        return frameEvents[k];
+    }
+
+    byte[] getFrames() {
+        return frames;
+    }
+
+    // Offset into getFrames() of keyframe k
+    int getKeyframeOffset(int k) {
+        return frameOffsets[k];
+    }
+
+    // Last keyframe at or before tick, or -1 if there is none
+    int keyframeBefore(long tick) {
+
+        int lo = 0;
+        int hi = frameTicks.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (frameTicks[mid] <= tick) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo - 1;
+
+    }//end method keyframeBefore
+
+    long getScore() {
+        return score;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    int getLines() {
+        return lines;
+    }
+
+    void write(File file) throws IOException {
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(seed);
+            out.writeInt(startLevel);
+            out.writeInt(events.length);
+            out.write(events);
+            out.writeInt(frames.length);
+            out.write(frames);
+
+            int indexOffset = out.size();
+            out.writeInt(frameTicks.length);
+            for (int k = 0; k < frameTicks.length; k++) {
+                out.writeLong(frameTicks[k]);
+                out.writeInt(frameEvents[k]);
+                out.writeInt(frameOffsets[k]);
+            }
+            out.writeInt(indexOffset);
+            out.writeInt(MAGIC);
+        }
+
+    }//end method write
+
+    static Replay read(File file) throws IOException {
+
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        try {
+            if (in.getInt() != MAGIC || in.get() != VERSION) {
+                throw new IOException(file + " is not a replay this version can read");
+            }
+            long seed = in.getLong();
+            int startLevel = in.getInt();
+            byte[] events = new byte[in.getInt()];
+            in.get(events);
+            byte[] frames = new byte[in.getInt()];
+            in.get(frames);
+
+            // The index is found from the trailer, so a viewer can read it before the rest
+            int limit = in.limit();
+            if (in.getInt(limit - 4) != MAGIC) {
+                throw new IOException(file + " is truncated");
+            }
+            in.position(in.getInt(limit - 8));
+            int count = in.getInt();
+            long[] frameTicks = new long[count];
+            int[] frameEvents = new int[count];
+            int[] frameOffsets = new int[count];
+            for (int k = 0; k < count; k++) {
+                frameTicks[k] = in.getLong();
+                frameEvents[k] = in.getInt();
+                frameOffsets[k] = in.getInt();
+            }
+            return new Replay(seed, startLevel, events, frames, frameTicks, frameEvents, frameOffsets);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | NegativeArraySizeException e) {
+            throw new IOException(file + " is truncated");
+        }
+
+    }//end method read
+
+}//end class Replay
@@ -0,0 +1,196 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Plays a Replay back through a headless GameEngine, either paced to
+ *          the game clock or as fast as possible to verify the recorded result,
+ *          and seeks through it by way of its keyframes
+ */
+
+final class ReplayPlayer {
+
+    private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+
+    private final Replay replay;
+    private final GameEngine engine = new GameEngine();
+    private final int[] pos = {0};
+    private final int[] peekPos = {0};
+    private long tick;
+    private boolean ended;
+
+    ReplayPlayer(Replay replay) {
+
+        this.replay = replay;
+        rewind();
+
+    }//end constructor
+
+    GameEngine getEngine() {
+        return engine;
+    }
+
+    // Game tick of the last event applied
+    long getTick() {
+        return tick;
+    }
+
+    // Applies the next event, returns false once the replay has ended
+    boolean step() {
+
+        if (ended) {
+            return false;
+        }
+        long event = Varint.read(replay.getEvents(), pos);
+        tick += event >>> Replay.CODE_BITS;
+        int code = (int) (event & ((1 << Replay.CODE_BITS) - 1));
+        if (code == Replay.END) {
+            ended = true;
+            return false;
+        }
+        if (code == Replay.GRAVITY) {
+            engine.tick();
+        }
+        else {
+            engine.step(ACTIONS[code]);
+        }
+        return true;
+
+    }//end method step
+
+    // Plays to the end; in real time each event waits for its tick, and afterEvent runs after each one
+    void play(boolean realTime, Runnable afterEvent) {
+
+        long start = System.nanoTime() - tick * TickScheduler.STEP;
+        while (!ended) {
+            if (realTime) {
+                long due = start + peekTick() * TickScheduler.STEP;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                    continue;
+                }
+            }
+            if (step() && afterEvent != null) {
+                afterEvent.run();
+            }
+        }
+
+    }//end method play
+
+    // Moves to the game as it stood at target, applying every event up to and including that tick;
+    // only the events since the nearest keyframe are simulated
+    void seek(long target) {
+
+        int k = replay.keyframeBefore(target);
+        boolean behind = target < tick || ended;
+        if (k >= 0 && (behind || replay.getKeyframeTick(k) > tick)) {
+            jumpTo(k);
+        }
+        else if (behind) {
+            rewind();
+        }
+        while (!ended && peekTick() <= target) {
+            step();
+        }
+
+    }//end method seek
+
+    // Plays to the end at full speed, returns true if the recorded result was reproduced
+    boolean verify() {
+
+        play(false, null);
+        return engine.getScore() == replay.getScore()
+            && engine.getLevel() == replay.getLevel()
+            && engine.getClearedLines() == replay.getLines();
+
+    }//end method verify
+
+    // Checks that keyframe k played forward arrives exactly at keyframe k+1, or at the
+    // recorded result for the last one; each segment is independent of the others
+    boolean verifySegment(int k) {
+
+        // The first segment starts from the seed itself, so the first keyframe is checked too
+        if (k == 0) {
+            rewind();
+        }
+        else {
+            jumpTo(k);
+        }
+        if (k + 1 == replay.getKeyframeCount()) {
+            return verify();
+        }
+        int end = replay.getKeyframeEvent(k + 1);
+        while (pos[0] < end && step()) {
+            //keep stepping
+        }
+
+        byte[] frames = replay.getFrames();
+        int from = replay.getKeyframeOffset(k + 1);
+        int to = (k + 2 < replay.getKeyframeCount()) ? replay.getKeyframeOffset(k + 2) : frames.length;
+        byte[] state = new byte[GameEngine.MAX_STATE];
+        int length = engine.writeState(state, 0);
+        return length == to - from && Arrays.equals(Arrays.copyOf(state, length), Arrays.copyOfRange(frames, from, to));
+
+    }//end method verifySegment
+
+    // Verifies every segment of a replay at once, one player per segment across the cores
+    static boolean verifyParallel(Replay replay) {
+
+        if (replay.getKeyframeCount() == 0) {
+            return new ReplayPlayer(replay).verify();
+        }
+        return IntStream.range(0, replay.getKeyframeCount()).parallel()
+            .allMatch(k -> new ReplayPlayer(replay).verifySegment(k));
+
+    }//end method verifyParallel
+
+    // Back to the start of the game
+    private void rewind() {
+
+        engine.reset(replay.getSeed());
+        engine.setLevel(replay.getStartLevel());
+        pos[0] = 0;
+        tick = 0;
+        ended = false;
+
+    }//end method rewind
+
+    private void jumpTo(int k) {
+
+        engine.readState(replay.getFrames(), new int[] {replay.getKeyframeOffset(k)});
+        pos[0] = replay.getKeyframeEvent(k);
+        tick = replay.getKeyframeTick(k);
+        ended = false;
+
+    }//end method jumpTo
+
+    // Tick of the next event, without applying it
+    private long peekTick() {
+
+        peekPos[0] = pos[0];
+        return tick + (Varint.read(replay.getEvents(), peekPos) >>> Replay.CODE_BITS);
+
+    }//end method peekTick
+
+    // Verifies each replay file given, e.g. java game.ReplayPlayer ~/.tevtris/replays/*.tvr
+    public static void main(String[] args) throws IOException {
+
+        for (String arg : args) {
+            Replay replay = Replay.read(new File(arg));
+            long start = System.nanoTime();
+            boolean ok = verifyParallel(replay);
+            System.out.printf("%s: %s, score %d level %d lines %d, %d keyframes, verified in %.2f ms%n",
+                arg, ok ? "ok" : "MISMATCH", replay.getScore(), replay.getLevel(), replay.getLines(),
+                replay.getKeyframeCount(), (System.nanoTime() - start) / 1e6);
+        }
+
+    }//end method main
+
+}//end class ReplayPlayer
@@ -0,0 +1,117 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Collects the events of the game in progress into growing byte
+ *          buffers, reused from game to game, with a keyframe of the engine
+ *          state every so often, and seals them into a Replay
+ */
+
+final class ReplayRecorder {
+
+    // Game ticks between keyframes; seeking never simulates more than this
+    static final long KEYFRAME_INTERVAL = 15_000;
+
+    private final GameEngine engine;
+
+    private byte[] events = new byte[4096];
+    private int length;
+    private long seed;
+    private int startLevel;
+    private long lastTick;
+
+    private byte[] frames = new byte[4 * GameEngine.MAX_STATE];
+    private int framesLength;
+    private long[] frameTicks = new long[64];
+    private int[] frameEvents = new int[64];
+    private int[] frameOffsets = new int[64];
+    private int frameCount;
+    private long nextFrame;
+
+    // Records games played on engine
+    ReplayRecorder(GameEngine engine) {
+        this.engine = engine;
+    }
+
+    // Starts recording the game the engine was just reset to
+    void start(long seed, int startLevel) {
+
+        this.seed = seed;
+        this.startLevel = startLevel;
+        length = 0;
+        lastTick = 0;
+        framesLength = 0;
+        frameCount = 0;
+        keyframe();
+        nextFrame = KEYFRAME_INTERVAL;
+
+    }//end method start
+
+    // The start level can still be changed until the first piece falls
+    void setStartLevel(int startLevel) {
+
+        this.startLevel = startLevel;
+        if (length == 0) {
+            framesLength = 0;
+            frameCount = 0;
+            keyframe();
+        }
+
+    }//end method setStartLevel
+
+    // Records a GameEngine.Action ordinal or Replay.GRAVITY at a game tick, before the
+    // engine applies it; ticks never go backwards
+    void record(long tick, int code) {
+
+        if (tick >= nextFrame) {
+            keyframe();
+            nextFrame = (tick / KEYFRAME_INTERVAL + 1) * KEYFRAME_INTERVAL;
+        }
+        events = ensure(events, length, Varint.MAX_LENGTH);
+        long delta = Math.max(tick - lastTick, 0);
+        lastTick += delta;
+        length = Varint.write(events, length, delta << Replay.CODE_BITS | code);
+
+    }//end method record
+
+    // Ends the recording with the game's result
+    Replay finish(long score, int level, int lines) {
+
+        events = ensure(events, length, 4 * Varint.MAX_LENGTH);
+        length = Varint.write(events, length, Replay.END);
+        length = Varint.write(events, length, score);
+        length = Varint.write(events, length, level);
+        length = Varint.write(events, length, lines);
+        return new Replay(seed, startLevel, Arrays.copyOf(events, length),
+            Arrays.copyOf(frames, framesLength), Arrays.copyOf(frameTicks, frameCount),
+            Arrays.copyOf(frameEvents, frameCount), Arrays.copyOf(frameOffsets, frameCount));
+
+    }//end method finish
+
+    // Saves the engine state as it stands after the last recorded event
+    private void keyframe() {
+
+        if (frameCount == frameTicks.length) {
+            frameTicks = Arrays.copyOf(frameTicks, frameCount * 2);
+            frameEvents = Arrays.copyOf(frameEvents, frameCount * 2);
+            frameOffsets = Arrays.copyOf(frameOffsets, frameCount * 2);
+        }
+        frames = ensure(frames, framesLength, GameEngine.MAX_STATE);
+        frameTicks[frameCount] = lastTick;
+        frameEvents[frameCount] = length;
+        frameOffsets[frameCount] = framesLength;
+        frameCount++;
+        framesLength = engine.writeState(frames, framesLength);
+
+    }//end method keyframe
+
+    private static byte[] ensure(byte[] buf, int length, int room) {
+
+        return length + room > buf.length ? Arrays.copyOf(buf, Math.max(buf.length * 2, length + room)) : buf;
+
+    }//end method ensure
+
+}//end class ReplayRecorder
@@ -0,0 +1,278 @@
+package game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Append-only log of finished games, one fixed-size checksummed
+ *          record per game, written and synced to disk on a background thread
+ */
+
+final class ScoreLog implements Runnable {
+
+    // One finished game
+    static final class Record {
+        final long time;
+        final long score;
+        final int level;
+        final int lines;
+
+        Record(long time, long score, int level, int lines) {
+            this.time = time;
+            this.score = score;
+            this.level = level;
+            this.lines = lines;
+        }
+    }
+
+    // Record layout: magic, time, score, level, lines, then a CRC32 of the preceding bytes
+    static final int RECORD_SIZE = 32;
+    private static final int TIME_OFFSET = 4;
+    private static final int SCORE_OFFSET = 12;
+    private static final int LEVEL_OFFSET = 20;
+    private static final int LINES_OFFSET = 24;
+    private static final int CRC_OFFSET = RECORD_SIZE - 4;
+    private static final int MAGIC = 0x54455452;
+
+    // Longest a written record may sit in the OS cache before it is synced
+    private static final long SYNC_INTERVAL = 1_000_000_000L;
+
+    // Most records gathered into one write
+    private static final int MAX_BATCH = 64;
+
+    // Queued by close() so the writer drains everything before it and stops
+    private static final Record CLOSE = new Record(0, 0, 0, 0);
+
+    private final File file;
+    private final FileChannel channel;
+    private final BlockingQueue<Record> pending = new LinkedBlockingQueue<>();
+    private final CRC32 crc = new CRC32();
+    private long recovered;
+    private Thread writer;
+
+    // End of the last record known to be wholly written; only the writer thread moves it after recovery
+    private long end;
+
+    // Opens or creates the log, dropping any torn or corrupt records at its end
+    ScoreLog(File file) throws IOException {
+
+        this.file = file;
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("cannot create " + dir);
+        }
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        recover();
+
+    }//end constructor
+
+    // Number of intact records found when the log was opened
+    long getRecovered() {
+        return recovered;
+    }
+
+    // Read-only view of the records that were intact when the log was opened
+    MappedByteBuffer map() throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, recovered * RECORD_SIZE);
+    }
+
+    // Record number n of a mapped log
+    static long timeAt(ByteBuffer map, int n) {
+        return map.getLong(n*RECORD_SIZE + TIME_OFFSET);
+    }
+
+    static long scoreAt(ByteBuffer map, int n) {
+        return map.getLong(n*RECORD_SIZE + SCORE_OFFSET);
+    }
+
+    static Record read(ByteBuffer map, int n) {
+
+        int at = n*RECORD_SIZE;
+        return new Record(map.getLong(at + TIME_OFFSET), map.getLong(at + SCORE_OFFSET),
+            map.getInt(at + LEVEL_OFFSET), map.getInt(at + LINES_OFFSET));
+
+    }//end method read
+
+    void start() {
+
+        writer = new Thread(this, "scoreWriter");
+        writer.setDaemon(true);
+        writer.start();
+
+    }//end method start
+
+    // Queues a record for the writer thread, never blocks on disk
+    void append(Record record) {
+        pending.offer(record);
+    }
+
+    // Writes and syncs everything queued so far, then stops the writer
+    void close() {
+
+        if (writer == null) {
+            return;
+        }
+        pending.offer(CLOSE);
+        try {
+            writer.join(SYNC_INTERVAL / 1_000_000L * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }//end method close
+
+    @Override
+    public void run() {
+
+        ByteBuffer batch = ByteBuffer.allocate(RECORD_SIZE * MAX_BATCH);
+        List<Record> drained = new ArrayList<>(MAX_BATCH);
+        long syncDue = -1;
+        boolean closing = false;
+
+        while (!closing) {
+            Record first;
+            try {
+                long wait = syncDue < 0 ? SYNC_INTERVAL : syncDue - System.nanoTime();
+                first = pending.poll(Math.max(wait, 0), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                first = CLOSE;
+            }
+
+            if (first != null) {
+                drained.clear();
+                drained.add(first);
+                pending.drainTo(drained, MAX_BATCH - 1);
+                batch.clear();
+                for (Record record : drained) {
+                    if (record == CLOSE) {
+                        closing = true;
+                    }
+                    else {
+                        encode(batch, record);
+                    }
+                }
+                batch.flip();
+                if (batch.hasRemaining()) {
+                    writeBatch(batch);
+                    if (syncDue < 0) {
+                        syncDue = System.nanoTime() + SYNC_INTERVAL;
+                    }
+                }
+            }
+
+            if (syncDue >= 0 && (closing || System.nanoTime() >= syncDue)) {
+                sync();
+                syncDue = -1;
+            }
+        }
+
+    }//end method run
+
+    // Checks each record in turn and cuts the file off at the first one that fails
+    private void recover() throws IOException {
+
+        long size = channel.size();
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_SIZE * MAX_BATCH);
+        long pos = 0;
+        long good = 0;
+        scan:
+        while (pos + RECORD_SIZE <= size) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), (size - pos) / RECORD_SIZE * RECORD_SIZE));
+            while (buf.hasRemaining() && channel.read(buf, pos + buf.position()) > 0) {
+                //keep reading
+            }
+            buf.flip();
+            while (buf.remaining() >= RECORD_SIZE) {
+                if (!isIntact(buf)) {
+                    break scan;
+                }
+                buf.position(buf.position() + RECORD_SIZE);
+                good++;
+            }
+            pos += buf.limit();
+        }
+
+        end = good * RECORD_SIZE;
+        if (end < size) {
+            System.err.println("Score log " + file + ": dropped " + (size - end)
+                + " bytes of torn or corrupt records");
+            channel.truncate(end);
+            channel.force(true);
+        }
+        recovered = good;
+
+    }//end method recover
+
+    // True if the record at buf's position has the right magic and checksum
+    private boolean isIntact(ByteBuffer buf) {
+
+        int at = buf.position();
+        if (buf.getInt(at) != MAGIC) {
+            return false;
+        }
+        crc.reset();
+        crc.update(buf.array(), buf.arrayOffset() + at, CRC_OFFSET);
+        return buf.getInt(at + CRC_OFFSET) == (int) crc.getValue();
+
+    }//end method isIntact
+
+    private void encode(ByteBuffer buf, Record record) {
+
+        int at = buf.position();
+        buf.putInt(MAGIC);
+        buf.putLong(record.time);
+        buf.putLong(record.score);
+        buf.putInt(record.level);
+        buf.putInt(record.lines);
+        crc.reset();
+        crc.update(buf.array(), buf.arrayOffset() + at, CRC_OFFSET);
+        buf.putInt((int) crc.getValue());
+
+    }//end method encode
+
+    // Writes the batch after the last good record, so a failed write never leaves later records behind torn bytes
+    private void writeBatch(ByteBuffer batch) {
+
+        long pos = end;
+        try {
+            while (batch.hasRemaining()) {
+                pos += channel.write(batch, pos);
+            }
+            end = pos;
+        } catch (IOException e) {
+            System.err.println("Score log " + file + ": write failed, " + e.getMessage()
+                + "; dropped " + (batch.limit() / RECORD_SIZE) + " records");
+            try {
+                channel.truncate(end);
+            } catch (IOException again) {
+                // The next batch is written over the torn bytes at end all the same
+                System.err.println("Score log " + file + ": truncate failed, " + again.getMessage());
+            }
+        }
+
+    }//end method writeBatch
+
+    private void sync() {
+
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Score log " + file + ": sync failed, " + e.getMessage());
+        }
+
+    }//end method sync
+
+}//end class ScoreLog
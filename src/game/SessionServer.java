@@ -0,0 +1,511 @@
+package game;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Hosts many independent games in one JVM, each with its own engine
+ *          and gravity clock, all timed by a few shared TimerWheels rather
+ *          than a thread per game; games are played by bots in the JVM or by
+ *          remote players over a socket
+ */
+
+final class SessionServer {
+
+    // Protocol, all little-endian:
+    //   player hello:  int MAGIC, long seed, int starting level
+    //   player move:   one Action ordinal byte, or RESTART for a new game from the next seed
+    //   server board:  BOARD_SIZE bytes, sent whenever the board changed, only the latest if several did:
+    //                  long score, int level, int lines, byte game over, then the current piece,
+    //                  its x, y and rotation and the preview piece, then the well's cells row by row
+    static final int MAGIC = 0x54565353;
+    static final byte RESTART = -1;
+    static final int BOARD_SIZE = 8 + 4 + 4 + 6 + GameEngine.WIDTH * GameEngine.HEIGHT;
+
+    private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+
+    // One game: its engine only changes on its wheel's thread, through its scheduler
+    static final class Session implements TickScheduler.Target {
+
+        private final GameEngine engine = new GameEngine();
+        private final TickScheduler scheduler = new TickScheduler(this);
+        private final int startLevel;
+        private long seed;
+
+        // Plays the game when set, otherwise moves come from input; only used on the wheel thread
+        private final Planner bot;
+        private final GameEngine.Action[] botMoves = new GameEngine.Action[Planner.MAX_MOVES];
+
+        // Told on the wheel thread each time a new board is published, may be null
+        private final Runnable onBoard;
+
+        private volatile boolean closed = false;
+        private volatile BoardSnapshot board;
+        private volatile long pieces = 0;
+        private volatile long games = 0;
+
+        private Session(long seed, int startLevel, Planner bot, Runnable onBoard) {
+
+            this.seed = seed;
+            this.startLevel = startLevel;
+            this.bot = bot;
+            this.onBoard = onBoard;
+            engine.setListener(new GameEngine.Listener() {
+                @Override
+                public void pieceLocked() {
+                    pieces++;
+                    scheduler.pieceLocked();
+                    if (Session.this.bot != null) {
+                        scheduler.post(Session.this::botTurn);
+                    }
+                }
+
+                @Override
+                public void linesCleared(int count) {
+                    scheduler.linesCleared();
+                }
+
+                @Override
+                public void gameOver() {
+                    games++;
+                    if (Session.this.bot != null) {
+                        // Bots play on with the next seed, so the load stays even
+                        scheduler.post(() -> restart(Session.this.seed + 1));
+                    }
+                }
+            });
+
+        }//end constructor
+
+        // Hands a player move to the session, applied on its wheel's thread if the game is in play
+        void input(GameEngine.Action action) {
+
+            scheduler.post(() -> {
+                if (isRunning() && engine.step(action)) {
+                    publish();
+                }
+            });
+
+        }//end method input
+
+        // Starts a new game from seed at the session's starting level
+        void restart(long seed) {
+
+            scheduler.post(() -> {
+                this.seed = seed;
+                engine.reset(seed);
+                engine.setLevel(startLevel);
+                scheduler.restart();
+                publish();
+                if (bot != null) {
+                    botTurn();
+                }
+            });
+
+        }//end method restart
+
+        void close() {
+
+            closed = true;
+            scheduler.stop();
+
+        }//end method close
+
+        // Latest board, null until the first game starts; a player's is updated after every move and gravity
+        // step, a bot's only when each of its games starts, so thousands of bots don't pay for snapshots
+        BoardSnapshot getBoard() {
+            return board;
+        }
+
+        long getPieces() {
+            return pieces;
+        }
+
+        long getGames() {
+            return games;
+        }
+
+        // Takes the bot's moves at once but leaves out its slam, so gravity brings the piece down at game pace
+        private void botTurn() {
+
+            if (!isRunning()) {
+                return;
+            }
+            int n = bot.plan(engine, botMoves);
+            for (int k = 0; k < n - 1; k++) {
+                engine.step(botMoves[k]);
+            }
+
+        }//end method botTurn
+
+        private void publish() {
+
+            board = engine.snapshot();
+            if (onBoard != null) {
+                onBoard.run();
+            }
+
+        }//end method publish
+
+        @Override
+        public boolean isRunning() {
+            return !closed && !engine.isGameOver();
+        }
+
+        @Override
+        public int getLevel() {
+            return engine.getLevel();
+        }
+
+        @Override
+        public boolean isGrounded() {
+            return engine.isGrounded();
+        }
+
+        @Override
+        public void gravity() {
+
+            engine.tick();
+            if (bot == null) {
+                publish();
+            }
+
+        }//end method gravity
+
+        @Override
+        public void flashDone() {
+            //the board is already up to date
+        }
+
+    }//end class Session
+
+    // A remote player's connection and the session it plays
+    private final class Remote {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer out = ByteBuffer.allocate(BOARD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        // Set when the session has a board not yet sent, so a burst of changes is queued once
+        final AtomicBoolean changed = new AtomicBoolean();
+        Session session;
+        SelectionKey key;
+        long seed;
+
+        Remote(SocketChannel channel) {
+            this.channel = channel;
+            out.flip();
+        }
+
+        // Runs on the session's wheel thread
+        void boardChanged() {
+
+            if (changed.compareAndSet(false, true)) {
+                changedRemotes.offer(this);
+                selector.wakeup();
+            }
+
+        }//end method boardChanged
+    }
+
+    private final TimerWheel[] wheels;
+    private final AtomicInteger opened = new AtomicInteger();
+
+    // Remote players' side, set up by listen; one selector thread is plenty for a byte per move
+    private ServerSocketChannel server;
+    private Selector selector;
+    private final Queue<Remote> changedRemotes = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    SessionServer(int threads) {
+
+        wheels = new TimerWheel[threads];
+        for (int k = 0; k < threads; k++) {
+            wheels[k] = new TimerWheel("sessionWheel-" + (k + 1));
+            wheels[k].start();
+        }
+
+    }//end constructor
+
+    // Starts a game on the next wheel in turn; bot may be null for a player who sends input
+    Session open(long seed, int startLevel, Planner bot) {
+        return open(seed, startLevel, bot, null);
+    }
+
+    private Session open(long seed, int startLevel, Planner bot, Runnable onBoard) {
+
+        Session session = new Session(seed, startLevel, bot, onBoard);
+        session.scheduler.start(wheels[opened.getAndIncrement() % wheels.length]);
+        session.restart(seed);
+        return session;
+
+    }//end method open
+
+    // Takes remote players on the port, on every address when anyAddress is set, otherwise on loopback only
+    void listen(int port, boolean anyAddress) throws IOException {
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(anyAddress ? new InetSocketAddress(port)
+            : new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        Thread loop = new Thread(this::serveRemotes, "sessionNet");
+        loop.setDaemon(true);
+        loop.start();
+
+    }//end method listen
+
+    int getPort() {
+        return ((InetSocketAddress) server.socket().getLocalSocketAddress()).getPort();
+    }
+
+    void stop() {
+
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        for (TimerWheel wheel : wheels) {
+            wheel.stop();
+        }
+
+    }//end method stop
+
+    private void serveRemotes() {
+
+        while (running) {
+            try {
+                selector.select();
+                Remote remote;
+                while ((remote = changedRemotes.poll()) != null) {
+                    send(remote);
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (key.isAcceptable()) {
+                        accept();
+                    }
+                    else {
+                        serve((Remote) key.attachment());
+                    }
+                }
+                selector.selectedKeys().clear();
+            } catch (IOException e) {
+                System.err.println("Session server: " + e);
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() != null) {
+                close((Remote) key.attachment());
+            }
+        }
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException e) {
+            //closing anyway
+        }
+
+    }//end method serveRemotes
+
+    private void accept() throws IOException {
+
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+        Remote remote = new Remote(channel);
+        remote.key = channel.register(selector, SelectionKey.OP_READ, remote);
+
+    }//end method accept
+
+    private void serve(Remote remote) {
+
+        try {
+            if (remote.key.isReadable() && remote.channel.read(remote.in) < 0) {
+                close(remote);
+                return;
+            }
+            remote.in.flip();
+            if (remote.session == null && remote.in.remaining() >= 16) {
+                if (remote.in.getInt() != MAGIC) {
+                    throw new IOException("not a player");
+                }
+                remote.seed = remote.in.getLong();
+                int level = remote.in.getInt();
+                if (level < 1) {
+                    throw new IOException("no level " + level);
+                }
+                remote.session = open(remote.seed, level, null, remote::boardChanged);
+            }
+            while (remote.session != null && remote.in.hasRemaining()) {
+                int move = remote.in.get();
+                if (move == RESTART) {
+                    remote.session.restart(++remote.seed);
+                }
+                else if (move >= 0 && move < ACTIONS.length) {
+                    remote.session.input(ACTIONS[move]);
+                }
+                else {
+                    throw new IOException("no move " + move);
+                }
+            }
+            remote.in.compact();
+            if (remote.key.isValid() && remote.key.isWritable()) {
+                send(remote);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Remote session closed: " + e);
+            close(remote);
+        }
+
+    }//end method serve
+
+    // Finishes the board being sent, then sends the latest one if it changed since
+    private void send(Remote remote) {
+
+        if (!remote.channel.isOpen()) {
+            return;
+        }
+        try {
+            remote.channel.write(remote.out);
+            while (!remote.out.hasRemaining() && remote.changed.getAndSet(false)) {
+                encode(remote.session.getBoard(), remote.out);
+                remote.channel.write(remote.out);
+            }
+            remote.key.interestOps(remote.out.hasRemaining()
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Remote session closed: " + e);
+            close(remote);
+        }
+
+    }//end method send
+
+    static void encode(BoardSnapshot board, ByteBuffer out) {
+
+        out.clear();
+        out.putLong(board.getScore()).putInt(board.getLevel()).putInt(board.getClearedLines());
+        out.put((byte) (board.isGameOver() ? 1 : 0));
+        out.put((byte) board.getCurrentPiece()).put((byte) board.getPieceX()).put((byte) board.getPieceY());
+        out.put((byte) board.getRotation()).put((byte) board.getPreviewPiece());
+        for (int row = 0; row < GameEngine.HEIGHT; row++) {
+            for (int col = 0; col < GameEngine.WIDTH; col++) {
+                out.put(board.getCell(col, row));
+            }
+        }
+        out.flip();
+
+    }//end method encode
+
+    private void close(Remote remote) {
+
+        if (remote.session != null) {
+            remote.session.close();
+        }
+        try {
+            remote.channel.close();
+        } catch (IOException e) {
+            //already gone
+        }
+
+    }//end method close
+
+    // Fired deadlines so far in each of the wheels' lateness buckets
+    long[] getLateness() {
+
+        long[] counts = new long[TimerWheel.LATENESS_BUCKETS];
+        for (TimerWheel wheel : wheels) {
+            for (int b = 0; b < counts.length; b++) {
+                counts[b] += wheel.getLateness(b);
+            }
+        }
+        return counts;
+
+    }//end method getLateness
+
+    // Upper bound in microseconds of the lateness below which the given fraction of deadlines fired
+    private static long percentile(long[] counts, double fraction) {
+
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        long seen = 0;
+        for (int b = 0; b < counts.length; b++) {
+            seen += counts[b];
+            if (seen >= total * fraction) {
+                return 1L << b;
+            }
+        }
+        return 1L << counts.length;
+
+    }//end method percentile
+
+    // Runs bot sessions and reports their pace and how late their timers fire each second,
+    // e.g. java game.SessionServer 10000 30 5, or with "serve" only takes remote players,
+    // e.g. java game.SessionServer serve 8767
+    public static void main(String[] args) throws InterruptedException, IOException {
+
+        if (args.length > 0 && args[0].equals("serve")) {
+            SessionServer server = new SessionServer(Runtime.getRuntime().availableProcessors());
+            server.listen(args.length > 1 ? Integer.parseInt(args[1]) : 8767, true);
+            System.out.println("Session server on port " + server.getPort());
+            Thread.currentThread().join();
+        }
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int level = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        SessionServer server = new SessionServer(threads);
+        Session[] sessions = new Session[count];
+        for (int i = 0; i < count; i++) {
+            sessions[i] = server.open(i * 1_000_000L, level, new Bot(Bot.DEFAULT_WEIGHTS, false));
+        }
+        System.out.printf("%d sessions at level %d on %d wheel threads, %d threads in the JVM%n",
+            count, level, threads, Thread.activeCount());
+
+        long lastPieces = 0;
+        long[] lastLateness = new long[TimerWheel.LATENESS_BUCKETS];
+        for (int s = 1; s <= seconds; s++) {
+            Thread.sleep(1000);
+            long pieces = 0;
+            long games = 0;
+            for (Session session : sessions) {
+                pieces += session.getPieces();
+                games += session.getGames();
+            }
+            long[] lateness = server.getLateness();
+            long[] recent = new long[lateness.length];
+            long fired = 0;
+            for (int b = 0; b < lateness.length; b++) {
+                recent[b] = lateness[b] - lastLateness[b];
+                fired += recent[b];
+            }
+            System.out.printf("%3d s: %,d pieces/s, %,d games over, %,d timer events/s, late by p50 < %d us, p99 < %d us, p99.9 < %d us%n",
+                s, pieces - lastPieces, games, fired,
+                percentile(recent, 0.5), percentile(recent, 0.99), percentile(recent, 0.999));
+            lastPieces = pieces;
+            lastLateness = lateness;
+        }
+        server.stop();
+
+    }//end method main
+
+}//end class SessionServer
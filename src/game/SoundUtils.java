@@ -1,10 +1,5 @@
 package game;
 
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.SourceDataLine;
-
 /**
  * Project: TetrisCloneAttempt
  * Author: Evan Smith
@@ -14,9 +9,14 @@ import javax.sound.sampled.SourceDataLine;
 
 class SoundUtils {
 
-    private static double sS = 1;
+    // Number of times the song has been sped up by 10%, levels 2, 4, 6, 8 and 10 each add one
+    private volatile int tempoStep = 0;
+    private static final int TEMPO_STEPS = 6;
+
+    private volatile boolean isPlaying = false;
 
-    private static boolean isPlaying = false;
+    // Single output line shared by every note of this game
+    private final AudioEngine audio = new AudioEngine();
 
     private static int[] noteList = {1318, 988, 1046, 1175, 1046, 988, 880, 880, 1046,
         1318, 1175, 1046, 988, 988, 1046, 1175, 1318, 1046, 880,
@@ -28,74 +28,140 @@ class SoundUtils {
         500, 250, 250, 500, 500, 500, 250, 250, 500, 250, 250,
         500, 500, 500, 500, 1000};
 
-    private static int note = 0;
-
-    private static void tone(int hz, double msecs)
-        throws LineUnavailableException {
-        byte[] buf = new byte[1];
-        float SAMPLE_RATE = 8000f;
-        AudioFormat af =
-            new AudioFormat(
-                SAMPLE_RATE,      // sampleRate
-                8, // sampleSizeInBits
-                1,       // channels
-                true,      // signed
-                false);  // bigEndian
-        SourceDataLine sdl = AudioSystem.getSourceDataLine(af);
-        sdl.open(af);
-        sdl.start();
-        for (int i=0; i < msecs*8; i++) {
-            double angle = i / (SAMPLE_RATE / hz) * 2.0 * Math.PI;
-            buf[0] = (byte)(Math.sin(angle) * 127.0);
-            sdl.write(buf,0,1);
-        }
-        sdl.drain();
-        sdl.stop();
-        sdl.close();
-    }
+    // Silence between loops of the song
+    private static final int LOOP_GAP_MS = 200;
+
+    // Samples copied to the audio line at a time
+    private static final int CHUNK = 1024;
+
+    // Whole song rendered once per tempo step, with where each note starts and the total length at the end;
+    // shared by every game in the JVM since it never changes once rendered
+    private static final short[][] songs = new short[TEMPO_STEPS][];
+    private static final int[][] noteStarts = new int[TEMPO_STEPS][];
+
+    private static boolean prerendering = false;
+
+    // Read position in the song, and the tempo it belongs to, only touched by the music thread
+    private int position = 0;
+    private int positionStep = 0;
+    private volatile boolean restartSong = false;
 
-    static void setSongSpeed() {
-        sS -= .1;
+    void setSongSpeed() {
+        tempoStep = Math.min(tempoStep + 1, TEMPO_STEPS - 1);
     }
 
-    static void resetSongSpeed() {
-        sS = 1;
+    void resetSongSpeed() {
+        tempoStep = 0;
     }
 
-    static void resetStartNote() {
-        note = 0;
+    void resetStartNote() {
+        restartSong = true;
     }
 
-    static void stopPlaying() {
+    void stopPlaying() {
         isPlaying = false;
+        audio.setMuted(true);
     }
 
-    static void startPlaying() {
+    void startPlaying() {
+        audio.start();
+        prerenderSongs();
+        audio.setMuted(false);
         isPlaying = true;
     }
 
-    static boolean getPlaying() {
+    // Mixes a sound effect over the music without waiting for it
+    void playEffect(AudioEngine.Effect effect) {
+        audio.playEffect(effect);
+    }
+
+    boolean getPlaying() {
         return isPlaying;
     }
 
-    static void playSong() {
+    void playSong() {
         while (isPlaying) {
-            try {
-                if (note == noteList.length-1 || note == noteList.length) {
-                    note = 0;
-                }
-                for (int i = note; i < noteList.length; i++) {
-                    if (!isPlaying) return;
-                    SoundUtils.tone(noteList[i], noteLength[i]*sS);
-                    note = i + 1;
-                }
-                Thread.sleep(200);
-            } catch (InterruptedException | LineUnavailableException e) {
-                //
+            int step = tempoStep;
+            short[] song = getSong(step);
+            if (restartSong) {
+                restartSong = false;
+                position = 0;
+            }
+            else if (step != positionStep) {
+                getSong(positionStep);
+                position = mapPosition(position, positionStep, step);
+            }
+            positionStep = step;
+            if (position >= song.length) {
+                position = 0;
             }
+            int n = Math.min(CHUNK, song.length - position);
+            if (!audio.write(song, position, n)) return;
+            position += n;
+        }
+
+    }
+
+    // Renders every tempo on a background thread so the first level-up does not wait on it
+    private static synchronized void prerenderSongs() {
+
+        if (prerendering) {
+            return;
+        }
+        prerendering = true;
+        Thread renderer = new Thread(() -> {
+            for (int step = 0; step < TEMPO_STEPS; step++) {
+                getSong(step);
             }
+        }, "songRenderer");
+        renderer.setDaemon(true);
+        renderer.start();
+
+    }//end method prerenderSongs
+
+    private static synchronized short[] getSong(int step) {
+
+        if (songs[step] == null) {
+            renderSong(step);
+        }
+        return songs[step];
+
+    }//end method getSong
+
+    private static void renderSong(int step) {
 
+        double speed = 1 - step * 0.1;
+        int[] starts = new int[noteList.length + 2];
+        for (int i = 0; i < noteList.length; i++) {
+            starts[i+1] = starts[i] + toSamples(noteLength[i] * speed);
+        }
+        starts[noteList.length + 1] = starts[noteList.length] + toSamples(LOOP_GAP_MS);
+
+        short[] song = new short[starts[noteList.length + 1]];
+        for (int i = 0; i < noteList.length; i++) {
+            AudioEngine.synthesize(song, starts[i], starts[i+1] - starts[i], noteList[i]);
+        }
+        songs[step] = song;
+        noteStarts[step] = starts;
+
+    }//end method renderSong
 
+    private static int toSamples(double msecs) {
+        return (int) Math.round(msecs * AudioEngine.SAMPLE_RATE / 1000);
     }
 
+    // Finds the same point of the same note in the song rendered at another tempo
+    private static int mapPosition(int pos, int fromStep, int toStep) {
+
+        int[] from = noteStarts[fromStep];
+        int[] to = noteStarts[toStep];
+        int i = 0;
+        while (i < from.length - 2 && from[i+1] <= pos) {
+            i++;
+        }
+        double through = (double) (pos - from[i]) / (from[i+1] - from[i]);
+        return to[i] + (int) (through * (to[i+1] - to[i]));
+
+    }//end method mapPosition
+
 }//end class SoundUtils
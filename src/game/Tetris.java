@@ -3,7 +3,6 @@ package game;
 import javax.swing.JPanel;
 import javax.swing.JFrame;
 import javax.swing.WindowConstants;
-import java.awt.Point;
 import java.awt.Color;
 import java.awt.TexturePaint;
 import java.awt.Graphics;
@@ -13,6 +12,8 @@ import java.awt.Font;
 import java.awt.BasicStroke;
 import java.awt.Rectangle;
 import java.awt.Desktop;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseAdapter;
@@ -20,18 +21,15 @@ import java.awt.event.MouseEvent;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.image.BufferedImage;
-import java.io.BufferedWriter;
+import java.awt.image.VolatileImage;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.text.DateFormat;
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Project: TetrisCloneAttempt
@@ -42,60 +40,6 @@ import java.util.Date;
 
 class Tetris extends JPanel {
 
-    // 3 dimensional array for storing each tetramino shape-blueprint, and for each rotation
-    private final Point[][][] Tetraminos = {
-        // I-piece
-        {
-            {new Point(0,0), new Point(1,0), new Point(2,0), new Point(3,0)},
-            {new Point(1,0), new Point(1,1), new Point(1,2), new Point(1,3)},
-            {new Point(0,0), new Point(1,0), new Point(2,0), new Point(3,0)},
-            {new Point(1,0), new Point(1,1), new Point(1,2), new Point(1,3)}
-
-        },
-        // J-piece
-        {
-            {new Point(0,0), new Point(1,0), new Point(2,0), new Point(2,1)},
-            {new Point(0,2), new Point(1,2), new Point(1,1), new Point(1,0)},
-            {new Point(0,0), new Point(0,1), new Point(1,1), new Point(2,1)},
-            {new Point(1,2), new Point(1,1), new Point(1,0), new Point(2,0)}
-        },
-        // L-piece
-        {
-            {new Point(0,1), new Point(0,0), new Point(1,0), new Point(2,0)},
-            {new Point(0,0), new Point(1,0), new Point(1,1), new Point(1,2)},
-            {new Point(0,1), new Point(1,1), new Point(2,1), new Point(2,0)},
-            {new Point(1,0), new Point(1,1), new Point(1,2), new Point(2,2)}
-        },
-        // O-piece
-        {
-            {new Point(1,0), new Point(1,1), new Point(2,0), new Point(2,1)},
-            {new Point(1,0), new Point(1,1), new Point(2,0), new Point(2,1)},
-            {new Point(1,0), new Point(1,1), new Point(2,0), new Point(2,1)},
-            {new Point(1,0), new Point(1,1), new Point(2,0), new Point(2,1)}
-        },
-        // S-piece
-        {
-            {new Point(0,1), new Point(1,1), new Point(1,0), new Point(2,0)},
-            {new Point(1,0), new Point(1,1), new Point(2,1), new Point(2,2)},
-            {new Point(0,1), new Point(1,1), new Point(1,0), new Point(2,0)},
-            {new Point(1,0), new Point(1,1), new Point(2,1), new Point(2,2)}
-        },
-        // Z-piece
-        {
-            {new Point(0,0), new Point(1,0), new Point(1,1), new Point(2,1)},
-            {new Point(1,2), new Point(1,1), new Point(2,1), new Point(2,0)},
-            {new Point(0,0), new Point(1,0), new Point(1,1), new Point(2,1)},
-            {new Point(1,2), new Point(1,1), new Point(2,1), new Point(2,0)}
-        },
-        // T-piece
-        {
-            {new Point(0,0), new Point(1,0), new Point(1,1), new Point(2,0)},
-            {new Point(0,1), new Point(1,0), new Point(1,1), new Point(1,2)},
-            {new Point(0,1), new Point(1,1), new Point(1,0), new Point(2,1)},
-            {new Point(1,0), new Point(1,1), new Point(1,2), new Point(2,1)}
-        }
-    };
-
     // Standard colors for tetraminos
     private final Color[] tetraminoColors = {
         new Color(250,201,1), // orange for I piece
@@ -131,38 +75,54 @@ class Tetris extends JPanel {
 
     // Fields used to establish colors and background textures
     private final Color BACK_LIGHT_BLUE = new Color(221, 238, 255);
-    private final Color WELL_INIT_COLOR = new Color(200, 222, 235);
 //    private TexturePaint backgroundCells;
     private TexturePaint tpLight;
     private TexturePaint tpDark;
     private TexturePaint startControls;
     private TexturePaint pauseControls;
 
-    // Fields used for tetramino logic and tetramino/well appearance
-    private Point pieceOrigin;
-    private int currentPiece;
-    private int previewPiece;
-    private int rotation;
-    private ArrayList<Integer> nextPieces = new ArrayList<>();
-    private ArrayList<Integer> shufflePieces = new ArrayList<>();
-    private Boolean[][] well;
-    private Color[][] wellLook;
-
-    // Field used for thread synchronization
-    private final Object lock = new Object();
-
-    // Boolean fields used for controlling flow
-    private boolean isAlive = true;
-    private boolean paused = false;
-    private boolean quitting = false;
-    private boolean gameOver = false;
-    private boolean soundIsOn = true;
-    private boolean isStarted = false;
-    private boolean isStalled = false;
-    private boolean isSlammed = false;
-    private boolean flashing = false;
+    // Pre-rendered bevelled block for each tetramino, blitted once per occupied cell
+    private final BufferedImage[] blockSprites = new BufferedImage[PieceTable.PIECES];
+    private static final int SPRITE_INSET = 2;
+
+    // Offscreen copy of the background, empty well and box outlines, which are the same every frame
+    private VolatileImage backgroundLayer;
+    private BufferedImage backgroundFallback;
+    private static final int PANEL_WIDTH = 510;
+    private static final int PANEL_HEIGHT = 575;
+
+    // Game rules and state, only touched on the scheduler thread
+    private final GameEngine engine = new GameEngine();
+
+    // Music and sound effects of this game
+    private final SoundUtils sound = new SoundUtils();
+
+    // Clock that runs gravity and the line-clear flash, and the thread all input is posted to
+    private final TickScheduler scheduler;
+
+    // Latest copy of the board published by the scheduler thread, read when painting
+    private final AtomicReference<BoardSnapshot> board = new AtomicReference<>(engine.snapshot());
+
+    // Boolean fields used for controlling flow, shared by the UI and scheduler threads
+    private volatile boolean isAlive = true;
+    private volatile boolean paused = false;
+    private volatile boolean quitting = false;
+    private volatile boolean gameOver = false;
+    private volatile boolean soundIsOn = true;
+    private volatile boolean isStarted = false;
+    private volatile boolean flashing = false;
     private final boolean hasExited = false;
 
+    // Set when ActiveRenderer draws the frames, so Swing repaint requests are dropped
+    private volatile boolean activeRendering = false;
+
+    // Frame rate of --active-render when none is given
+    private static final int ACTIVE_FPS = 60;
+
+    // Plays in place of the keyboard when set, e.g. for attract mode
+    private volatile Planner bot;
+    private final GameEngine.Action[] botMoves = new GameEngine.Action[Planner.MAX_MOVES];
+
     // Fields to store highlighting effect state
     private boolean levelDownHighlight = false;
     private boolean levelUpHighlight = false;
@@ -185,27 +145,32 @@ class Tetris extends JPanel {
     private Rectangle exitRect;
     private Rectangle viewScoresRect;
 
-    // Fields used to store game-play stats
-    private long score = 0;
-    private int level = 1;
-    private int clearedLines = 0;
-    private int numCleared = 0;
-    private int[] flashRows = {0, 0, 0, 0};
-
-    // Tetris instance for use in main method
-    private static Tetris game;
+    // Screen areas redrawn after a move instead of the whole panel
+    private final Rectangle previewBoxRect = new Rectangle(288, 23, 174, 89);
+    private final Rectangle statsBoxRect = new Rectangle(288, 123, 204, 139);
+    private Rectangle lockedRect;
 
     // Different size fonts for use
     private Font sSBig = new Font("SansSerif", Font.BOLD, 18);
     private Font sSSmall = new Font("SansSerif", Font.BOLD, 15);
     private Font sSExtraSmall = new Font("SansSerif", Font.BOLD, 10);
 
-    // Files for storing and passing data to high scores webpage
-    private File dateFile = new File("/Library/WebServer/Documents/leaderboardFiles/dates.txt");
-    private File timeFile = new File("/Library/WebServer/Documents/leaderboardFiles/times.txt");
-    private File scoreFile = new File("/Library/WebServer/Documents/leaderboardFiles/scores.txt");
-    private File plainScoreFile = new File("/Library/WebServer/Documents/leaderboardFiles/plainScores.txt");
-    private File levelFile = new File("/Library/WebServer/Documents/leaderboardFiles/levels.txt");
+    // Every finished game and its index, null if they could not be opened
+    private static final File SCORE_DIR = new File(System.getProperty("user.home"), ".tevtris");
+    private Leaderboard leaderboard;
+
+    // Serves the leaderboard page, null if it could not be started
+    private static final int SCORES_PORT = 8765;
+    private LeaderboardServer scoresServer;
+
+    // Records every game so its score can be verified later, saved off the game thread
+    private static final File REPLAY_DIR = new File(SCORE_DIR, "replays");
+    private final ReplayRecorder recorder = new ReplayRecorder(engine);
+    private final ExecutorService replayWriter = Executors.newSingleThreadExecutor(task -> {
+        Thread writer = new Thread(task, "replayWriter");
+        writer.setDaemon(true);
+        return writer;
+    });
 
     private Tetris() {
         addMouseListener(new MouseAdapter() {
@@ -214,21 +179,19 @@ class Tetris extends JPanel {
                 int x = e.getX();
                 int y = e.getY();
                 if (lowerLevelClicked(x, y)) {
-                    level -= 1;
-                    repaint();
+                    changeStartLevel(-1);
                 }
                 else if (higherLevelClicked(x, y)) {
-                    level += 1;
-                    repaint();
+                    changeStartLevel(1);
                 }
                 else if (soundClicked(x, y)) {
                     if (soundIsOn) {
                         soundIsOn = false;
-                        SoundUtils.stopPlaying();
+                        sound.stopPlaying();
                     }
                     else {
                         soundIsOn = true;
-                        SoundUtils.startPlaying();
+                        sound.startPlaying();
                     }
                     repaint();
                 }
@@ -241,7 +204,7 @@ class Tetris extends JPanel {
                 else if (midGameRestartClicked(x, y)) {
                     gameOver = true;
                     isAlive = false;
-                    SoundUtils.stopPlaying();
+                    sound.stopPlaying();
                     restartActions(true);
                 }
                 else if (restartClicked(x, y)) {
@@ -276,31 +239,148 @@ class Tetris extends JPanel {
         tpDark = createDarkBackground();
         startControls = createStartControls();
         pauseControls = createPauseControls();
+        for (int k = 0; k < PieceTable.PIECES; k++) {
+            blockSprites[k] = createBlockSprite(k);
+        }
+
+        try {
+            leaderboard = new Leaderboard(new File(SCORE_DIR, "scores.log"), new File(SCORE_DIR, "scores.idx"));
+            Runtime.getRuntime().addShutdownHook(new Thread(leaderboard::close, "leaderboardClose"));
+        } catch (IOException e) {
+            System.err.println("Scores will not be saved: " + e.getMessage());
+        }
+        if (leaderboard != null) {
+            try {
+                scoresServer = new LeaderboardServer(leaderboard, SCORES_PORT);
+                scoresServer.start();
+            } catch (IOException e) {
+                System.err.println("High scores page unavailable: " + e.getMessage());
+            }
+        }
+
+        scheduler = new TickScheduler(new TickScheduler.Target() {
+            @Override
+            public boolean isRunning() {
+                return isAlive && isActive();
+            }
+
+            @Override
+            public int getLevel() {
+                return engine.getLevel();
+            }
+
+            @Override
+            public boolean isGrounded() {
+                return engine.isGrounded();
+            }
+
+            @Override
+            public void gravity() {
+                dropPiece();
+            }
+
+            @Override
+            public void flashDone() {
+                endFlash();
+            }
+        });
+
+        engine.setListener(new GameEngine.Listener() {
+            @Override
+            public void pieceLocked() {
+                lockedRect = pieceBounds();
+                scheduler.pieceLocked();
+                effect(AudioEngine.Effect.LOCK);
+            }
+
+            @Override
+            public void linesCleared(int count) {
+                flashing = true;
+                scheduler.linesCleared();
+                switch (count) {
+                    case 1:
+                        effect(AudioEngine.Effect.SINGLE);
+                        break;
+                    case 2:
+                        effect(AudioEngine.Effect.DOUBLE);
+                        break;
+                    case 3:
+                        effect(AudioEngine.Effect.TRIPLE);
+                        break;
+                    case 4:
+                        effect(AudioEngine.Effect.TETRIS);
+                        break;
+                }
+            }
+
+            @Override
+            public void levelChanged(int level) {
+                if (level <= 10 && (level % 2 == 0)) {
+                    sound.setSongSpeed();
+                }
+                effect(AudioEngine.Effect.LEVEL_UP);
+            }
+
+            @Override
+            public void gameOver() {
+                gameOverActions();
+            }
+        });
 
         addMouseMotionListener(new MouseAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
-                levelDownHighlight = levelDownRect.contains(e.getPoint());
-                levelUpHighlight = levelUpRect.contains(e.getPoint());
-                pauseHighlight = pauseRect.contains(e.getPoint());
-                quitHighlight = quitRect.contains(e.getPoint());
-                soundHighlight = soundRect.contains(e.getPoint());
-                midGameRestartHighlight = midGameRestartRect.contains(e.getPoint());
-                restartHighlight = restartRect.contains(e.getPoint());
-                exitHighlight = exitRect.contains(e.getPoint());
-                viewScoresHighlight = viewScoresRect.contains(e.getPoint());
-                repaint();
+                int x = e.getX();
+                int y = e.getY();
+                levelDownHighlight = updateHighlight(levelDownHighlight, levelDownRect, x, y);
+                levelUpHighlight = updateHighlight(levelUpHighlight, levelUpRect, x, y);
+                pauseHighlight = updateHighlight(pauseHighlight, pauseRect, x, y);
+                quitHighlight = updateHighlight(quitHighlight, quitRect, x, y);
+                soundHighlight = updateHighlight(soundHighlight, soundRect, x, y);
+                midGameRestartHighlight = updateHighlight(midGameRestartHighlight, midGameRestartRect, x, y);
+                restartHighlight = updateHighlight(restartHighlight, restartRect, x, y);
+                exitHighlight = updateHighlight(exitHighlight, exitRect, x, y);
+                viewScoresHighlight = updateHighlight(viewScoresHighlight, viewScoresRect, x, y);
             }
         });
     }//end constructor
 
+    void setActiveRendering(boolean activeRendering) {
+        this.activeRendering = activeRendering;
+    }
+
+    void setBot(Planner bot) {
+        this.bot = bot;
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+
+        if (!activeRendering) {
+            super.repaint(tm, x, y, width, height);
+        }
+
+    }//end method repaint
+
+    // Returns whether (x, y) is over the button, repainting the button's row only when that changed
+    private boolean updateHighlight(boolean highlighted, Rectangle rect, int x, int y) {
+
+        boolean over = rect.contains(x, y);
+        if (over != highlighted) {
+            // Labels sit to the right of the button boxes, so redraw the full width of the row
+            repaint(0, rect.y - 4, getWidth(), rect.height + 8);
+        }
+        return over;
+
+    }//end method updateHighlight
+
     private boolean lowerLevelClicked(int x, int y) {
-        return (!isStarted && level > 1 && x >= 175 && x <= 195
+        return (!isStarted && board.get().getLevel() > 1 && x >= 175 && x <= 195
             && y >= 100 && y <= 120);
     }
 
     private boolean higherLevelClicked(int x, int y) {
-        return (!isStarted && level < 10 && x >= 285 && x <= 305
+        return (!isStarted && board.get().getLevel() < 10 && x >= 285 && x <= 305
             && y >= 100 && y <= 120);
     }
 
@@ -343,14 +423,9 @@ class Tetris extends JPanel {
         gameOver = false;
         isStarted = false;
         isAlive = true;
-        isStalled = false;
-        isSlammed = false;
         flashing = false;
-        score = 0;
-        level = 1;
-        clearedLines = 0;
-        SoundUtils.resetSongSpeed();
-        SoundUtils.resetStartNote();
+        sound.resetSongSpeed();
+        sound.resetStartNote();
 
     }//end method resetFields
 
@@ -358,225 +433,161 @@ class Tetris extends JPanel {
     // Creates a border around the well and initializes the dropping piece
     private void init() {
 
-        well = new Boolean[12][20];
-        wellLook = new Color[12][20];
-        for (int i = 0; i < 12; i++) {
-            for (int j = 0; j < 20; j++) {
-                well[i][j] = i != 0 && i != 11 && j != 19;
-                wellLook[i][j] = WELL_INIT_COLOR;
-            }
-        }
-
-        newPiece();
+        scheduler.post(() -> {
+            engine.reset();
+            recorder.start(engine.getSeed(), engine.getLevel());
+            scheduler.restart();
+            publishBoard();
+            repaint();
+        });
 
     }//end method init
 
-    // Put a new, random piece into the dropping position
-    private void newPiece() {
+    private void changeStartLevel(int change) {
 
-        pieceOrigin = new Point(4, 1);
-        rotation = 0;
-        if ((nextPieces.isEmpty()) || (nextPieces.size() == 1)) {
-            Collections.addAll(shufflePieces, 0, 1, 2, 3, 4, 5, 6);
-            Collections.shuffle(shufflePieces);
-            nextPieces.addAll(shufflePieces);
-        }
-        currentPiece = nextPieces.get(0);
-        previewPiece = nextPieces.get(1);
+        scheduler.post(() -> {
+            engine.setLevel(engine.getLevel() + change);
+            recorder.setStartLevel(engine.getLevel());
+            publishBoard();
+            repaint();
+        });
 
-        nextPieces.remove(0);
+    }//end method changeStartLevel
 
-        if (!isValidMove(pieceOrigin.x, pieceOrigin.y+1, rotation)) {
-            gameOverActions();
-        }
+    // Hands a player move to the scheduler thread, which applies it if the game is still in play
+    private void input(GameEngine.Action action) {
+
+        scheduler.post(() -> {
+            if (isActive()) {
+                move(action, false);
+            }
+        });
 
-    }//end method newPiece
+    }//end method input
 
-    private void slide(int direction) {
+    private void effect(AudioEngine.Effect effect) {
 
-        if (isValidMove(pieceOrigin.x+direction, pieceOrigin.y, rotation)) {
-            pieceOrigin.x += direction;
+        if (soundIsOn) {
+            sound.playEffect(effect);
         }
-        repaint();
 
-    }//end method slide
+    }//end method effect
 
-    private void rotate() {
+    // Makes the engine's current state visible to the renderer
+    private void publishBoard() {
+        board.set(engine.snapshot());
+    }
 
-        if (isValidMove(pieceOrigin.x, pieceOrigin.y, rotation+1)) {
-            rotation++;
-        }
+    private void dropPiece() {
 
-        if (rotation == 4) {
-            rotation = 0;
-        }
-        repaint();
+        move(GameEngine.Action.DROP, true);
 
-    }//end method rotate
+    }//end method dropPiece
+
+    // Records and steps the engine, then repaints only the parts of the panel the move changed
+    private void move(GameEngine.Action action, boolean gravity) {
 
-    private void slamPiece() {
-        isSlammed = true;
-        for (int i = pieceOrigin.y; i < 18; i++) {
-            if (isValidMove(pieceOrigin.x, pieceOrigin.y+1, rotation)) {
-                pieceOrigin.y += 1;
+        recorder.record(scheduler.getTick(), gravity ? Replay.GRAVITY : action.ordinal());
+        Rectangle before = pieceBounds();
+        lockedRect = null;
+        if (!engine.step(action)) {
+            return;
+        }
+        publishBoard();
+
+        Rectangle dirty = before.union(pieceBounds());
+        if (lockedRect != null) {
+            dirty = dirty.union(lockedRect);
+            if (engine.getNumCleared() > 0) {
+                // Every row above the lowest cleared one has shifted down
+                dirty = dirty.union(wellRows(0, engine.getFlashRow(0)));
             }
-            else {
-                lockPiece();
-                break;
+            repaint(previewBoxRect);
+            repaint(statsBoxRect);
+            if (bot != null) {
+                scheduler.post(this::botTurn);
             }
         }
-        repaint();
+        repaint(dirty);
 
-    }//end method slamPiece
+    }//end method move
 
-    private void dropPiece() {
+    // Lets the bot place the falling piece, through the same moves a player makes
+    private void botTurn() {
 
-        if (isValidMove(pieceOrigin.x, pieceOrigin.y+1, rotation)) {
-            pieceOrigin.y += 1;
+        Planner player = bot;
+        if (player == null || !isActive()) {
+            return;
         }
-        else {
-            lockPiece();
+        int n = player.plan(engine, botMoves);
+        for (int k = 0; k < n; k++) {
+            move(botMoves[k], false);
         }
-        repaint();
 
-    }//end method dropPiece
+    }//end method botTurn
 
-    private void lockPiece() {
+    // Screen area covered by the falling piece, including the sprite border
+    private Rectangle pieceBounds() {
 
-        for (Point p: Tetraminos[currentPiece][rotation]) {
-            well[pieceOrigin.x + p.x][pieceOrigin.y + p.y] = false;
-            wellLook[pieceOrigin.x + p.x][pieceOrigin.y + p.y] = tetraminoColors[currentPiece];
-        }
-        repaint();
-        if (!gameOver) {
-            score += pieceOrigin.y+1;
-        }
-        clearLines();
-        if (!gameOver) {
-            newPiece();
-        }
-
-    }//end method lockPiece
-
-    private void clearLines() {
+        int piece = engine.getCurrentPiece();
+        int r = engine.getRotation();
+        int x = (engine.getPieceX() + PieceTable.MIN_X[piece][r]) * 25 - SPRITE_INSET;
+        int y = (engine.getPieceY() + PieceTable.MIN_Y[piece][r]) * 25 - SPRITE_INSET;
+        int w = (PieceTable.MAX_X[piece][r] - PieceTable.MIN_X[piece][r] + 1) * 25 + 2*SPRITE_INSET;
+        int h = (PieceTable.MAX_Y[piece][r] - PieceTable.MIN_Y[piece][r] + 1) * 25 + 2*SPRITE_INSET;
+        return new Rectangle(x, y, w, h);
 
-        boolean gap;
-        numCleared = 0;
-        for (int j = 18; j >= 0; j--) {
-            gap = false;
-            for (int i = 0; i < 12; i++) {
-                if (well[i][j]) {
-                    gap = true;
-                    break;
-                }
-            }
-            if (!gap) {
-                isStalled = true;
-                flashing = true;
-                clearedLines++;
-                flashRows[numCleared] = j-numCleared;
-                numCleared++;
-                deleteLine(j);
-                j += 1;
-                if (clearedLines % 10 == 0) {
-                    level++;
-                    if (level <= 10 && (level % 2 == 0)) {
-                        SoundUtils.setSongSpeed();
-                    }
-                }
-            }
-        }//end checking for complete lines to clear
-
-        switch (numCleared) {
-            case 0:
-                break;
-            case 1:
-                score += 40*level;
-                break;
-            case 2:
-                score += 100*level;
-                break;
-            case 3:
-                score += 300*level;
-                break;
-            case 4:
-                score += 1200*level;
-                break;
-        }//end score adjustment switch
-
-    }//end method clearLines
-
-    private void deleteLine(int rowNum) {
-
-        for (int j = rowNum-1; j > 0; j--) {
-            for (int i = 1; i < 11; i++) {
-                wellLook[i][j+1] = wellLook[i][j];
-                well[i][j+1] = well[i][j];
+    }//end method pieceBounds
 
-            }
-        }
+    // Screen area of well rows top through bottom, including the flash outlines
+    private Rectangle wellRows(int top, int bottom) {
 
-    }//end method deleteLine
+        return new Rectangle(22, top*25 - 3, 256, (bottom - top + 1)*25 + 6);
 
-    private boolean isValidMove(int x, int y, int r) {
+    }//end method wellRows
 
-        if (r == 4) {
-            r = 0;
-        }
-        if (x == -1) {
-            return false;
-        }
+    // Turns off the cleared-line outlines and erases them
+    private void endFlash() {
 
-        for (Point p: Tetraminos[currentPiece][r]) {
-            if (!well[p.x + x][p.y + y]) {
-                return false;
-            }
+        if (flashing) {
+            flashing = false;
+            repaint(wellRows(0, engine.getFlashRow(0)));
         }
-        return true;
 
-    }//end method isValidMove
+    }//end method endFlash
 
     @Override
     public void paintComponent(Graphics g) {
 
         Graphics2D g2 = (Graphics2D)g;
         FontMetrics fm = g2.getFontMetrics();
+        BoardSnapshot board = this.board.get();
 
-        // Paint the background
-        g2.setPaint(tpLight);
-        g2.fillRect(0,0, 510, 575); // filling background
-
-        // Paint the well
-        g2.setPaint(tpDark);
-        for (int i = 1; i < 11; i++) {
-            for (int j = 1; j < 19; j++) {
-                g2.fillRect(25*i, 25*j, 25, 25);
-            }
-        }
-
-        // Draw all the cell borders
-        drawCells(g2);
+        // Paint the background, the well and all the cell borders in one blit
+        drawBackground(g2);
+        g2.setColor(Color.BLACK);
+        g2.setStroke(new BasicStroke(4));
 
         // Draw the preview piece
-        drawPreviewPiece(g2);
+        drawPreviewPiece(g2, board);
 
         // Draw fixed pieces at bottom of well
-        drawFixedPieces(g2);
+        drawFixedPieces(g2, board);
 
         // Draw the level, lines, and score
-        drawData(g2, fm);
+        drawData(g2, fm, board);
 
         // Draw the currently falling piece
-        drawPiece(g2);
+        drawPiece(g2, board);
 
         // Draw game over screen if game is over
         if (gameOver) {
-            drawGameOverScreen(g2, fm);
+            drawGameOverScreen(g2, fm, board);
         }
 
         // Draw start screen if game not yet started
         if (!isStarted) {
-            drawStartScreen(g2);
+            drawStartScreen(g2, board);
         }
 
         // Draw pause screen if game is paused
@@ -591,83 +602,74 @@ class Tetris extends JPanel {
 
         if (flashing) {
             g2.setPaint(Color.GRAY);
-            for (int i = 0; i < numCleared; i++) {
-                g2.drawRect(28, flashRows[i] * 25, 244, 23);
+            for (int i = 0; i < board.getNumCleared(); i++) {
+                g2.drawRect(28, board.getFlashRow(i) * 25, 244, 23);
             }
         }
 
     }//end method paintComponent
 
-    private void drawPreviewPiece(Graphics2D g2) {
+    private void drawPreviewPiece(Graphics2D g2, BoardSnapshot board) {
+
+        int previewPiece = board.getPreviewPiece();
 
         // Display the next piece
-        g2.setColor(tetraminoColors[previewPiece]);
-        for (Point p : Tetraminos[previewPiece][0]) {
-            g2.fillRect((p.x + 13) * 25,
-                (p.y + 2) * 25,
-                25, 25);
-        }
-        for (Point p : Tetraminos[previewPiece][0]) {
-            g2.setColor(Color.BLACK);
-            g2.setStroke(new BasicStroke(2));
-            g2.drawRect((p.x + 13) * 25,
-                (p.y + 2) * 25,
-                25, 25);
-            g2.setColor(tetraminoDarkColors[previewPiece]);
-            g2.setStroke(new BasicStroke(4));
-            g2.drawLine((p.x + 13) * 25 + 3,
-                (p.y + 2) * 25 + 22,
-                (p.x + 13) * 25 + 22,
-                (p.y + 2) * 25 + 22);
-            g2.drawLine((p.x + 13) * 25 +3,
-                (p.y + 2) * 25 + 22,
-                (p.x + 13) * 25 + 3,
-                (p.y + 2) * 25 + 3);
-            g2.setColor(tetraminoLightColors[previewPiece]);
-            g2.setStroke(new BasicStroke(4));
-            drawTriangle((p.x + 13) * 25 + 1, (p.x + 13) * 25 + 5, (p.x + 13) * 25 + 5,
-                (p.y + 2) * 25 + 1, (p.y + 2) * 25 + 1, (p.y + 2) * 25 + 5, g2);
-            g2.drawLine((p.x + 13) * 25 + 7,
-                (p.y + 2) * 25 + 3,
-                (p.x + 13) * 25 + 22,
-                (p.y + 2) * 25 + 3);
-            drawTriangle((p.x + 13) * 25 + 20, (p.x + 13) * 25 + 24, (p.x + 13) * 25 + 24,
-                (p.y + 2) * 25 + 20, (p.y + 2) * 25 + 20, (p.y + 2) * 25 + 24, g2);
-            g2.drawLine((p.x + 13) * 25 + 22,
-                (p.y + 2) * 25 + 18,
-                (p.x + 13) * 25 + 22,
-                (p.y + 2) * 25 + 3);
+        for (int k = 0; k < PieceTable.CELLS; k++) {
+            drawBlock(g2, previewPiece,
+                (PieceTable.CELL_X[previewPiece][0][k] + 13) * 25,
+                (PieceTable.CELL_Y[previewPiece][0][k] + 2) * 25);
         }
 
     }//end method drawPreviewPiece
 
-    private void drawFixedPieces(Graphics2D g2) {
+    private void drawFixedPieces(Graphics2D g2, BoardSnapshot board) {
 
         for (int i = 1; i < 11; i++) {
             for (int j = 1; j < 19; j++) {
-                if (!wellLook[i][j].equals(WELL_INIT_COLOR)) {
-                    Color cr = wellLook[i][j];
-                    int redValue = cr.getRed();
-                    int greenValue = cr.getGreen();
-                    int blueValue = cr.getBlue();
-
-                    Color storeColor = new Color(redValue, greenValue, blueValue);
-
-                    int storePiece = 0;
-                    for (int k = 0; k < 7; k++) {
-                        if (tetraminoColors[k].getRGB() == storeColor.getRGB()) {
-                            storePiece = k;
-                        }
-                    }
-                    g2.setPaint(cr);
-                    g2.fillRect(25*i, 25*j, 25, 25);
-
-                    drawFixedBevel(g2, i, j, storePiece);
+                int storePiece = board.getCell(i, j);
+                if (storePiece != GameEngine.EMPTY) {
+                    drawBlock(g2, storePiece, 25*i, 25*j);
                 }
             }
         }
 
-    }//end method drawFallingPiece
+    }//end method drawFixedPieces
+
+    private void drawBlock(Graphics2D g2, int piece, int x, int y) {
+
+        g2.drawImage(blockSprites[piece], x - SPRITE_INSET, y - SPRITE_INSET, null);
+
+    }//end method drawBlock
+
+    // Renders one bevelled 25x25 block, with room around it for the border stroke
+    private BufferedImage createBlockSprite(int piece) {
+
+        BufferedImage bi = new BufferedImage(25 + 2*SPRITE_INSET, 25 + 2*SPRITE_INSET,
+            BufferedImage.TYPE_INT_ARGB);
+        Graphics2D big = bi.createGraphics();
+        big.translate(SPRITE_INSET, SPRITE_INSET);
+
+        big.setColor(tetraminoColors[piece]);
+        big.fillRect(0, 0, 25, 25);
+
+        big.setColor(Color.BLACK);
+        big.setStroke(new BasicStroke(2));
+        big.drawRect(0, 0, 25, 25);
+
+        big.setColor(tetraminoDarkColors[piece]);
+        big.setStroke(new BasicStroke(4));
+        big.drawLine(3, 22, 22, 22);
+        big.drawLine(3, 22, 3, 3);
+        big.setColor(tetraminoLightColors[piece]);
+        drawTriangle(1, 5, 5, 1, 1, 5, big);
+        big.drawLine(7, 3, 22, 3);
+        drawTriangle(20, 24, 24, 20, 20, 24, big);
+        big.drawLine(22, 18, 22, 3);
+
+        big.dispose();
+        return bi;
+
+    }//end method createBlockSprite
 
     private TexturePaint createLightBackground() {
 
@@ -802,7 +804,7 @@ class Tetris extends JPanel {
 
     }//end method createPauseControls
 
-    private void drawStartScreen(Graphics2D g2) {
+    private void drawStartScreen(Graphics2D g2, BoardSnapshot board) {
 
         g2.setFont(sSBig);
         g2.setPaint(BACK_LIGHT_BLUE);
@@ -810,6 +812,7 @@ class Tetris extends JPanel {
 
         g2.setPaint(Color.GRAY);
         g2.drawString("CHOOSE LEVEL :", 165, 60);
+        int level = board.getLevel();
         if (level == 1) {
             g2.setPaint(BACK_LIGHT_BLUE);
         }
@@ -877,7 +880,7 @@ class Tetris extends JPanel {
 
     }//end method drawQuitScreen
 
-    private void drawGameOverScreen(Graphics2D g2, FontMetrics fm) {
+    private void drawGameOverScreen(Graphics2D g2, FontMetrics fm, BoardSnapshot board) {
 
         g2.setPaint(new Color(221, 238, 255));
         g2.fillRect(27, 75, 247, 350);
@@ -890,7 +893,7 @@ class Tetris extends JPanel {
         g2.drawString("GAME OVER", 95, 120);
         g2.setPaint(Color.BLACK);
         g2.drawString("FINAL SCORE", 35, 180);
-        String scoreTotalString = "" + score;
+        String scoreTotalString = "" + board.getScore();
         g2.drawString(scoreTotalString, 235 - fm.stringWidth(scoreTotalString), 180);
 
         g2.setPaint(Color.LIGHT_GRAY);
@@ -920,6 +923,63 @@ class Tetris extends JPanel {
 
     }//end method drawGameOverScreen
 
+    // Copies the cached background layer to the screen, re-rendering it only if it was lost
+    private void drawBackground(Graphics2D g2) {
+
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null) {
+            // Not on a screen yet, so keep the layer in a plain image
+            if (backgroundFallback == null) {
+                backgroundFallback = new BufferedImage(PANEL_WIDTH, PANEL_HEIGHT, BufferedImage.TYPE_INT_RGB);
+                renderBackground(backgroundFallback);
+            }
+            g2.drawImage(backgroundFallback, 0, 0, null);
+            return;
+        }
+
+        do {
+            int status = VolatileImage.IMAGE_INCOMPATIBLE;
+            if (backgroundLayer != null) {
+                status = backgroundLayer.validate(gc);
+            }
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (backgroundLayer != null) {
+                    backgroundLayer.flush();
+                }
+                backgroundLayer = gc.createCompatibleVolatileImage(PANEL_WIDTH, PANEL_HEIGHT);
+                status = VolatileImage.IMAGE_RESTORED;
+            }
+            if (status == VolatileImage.IMAGE_RESTORED) {
+                renderBackground(backgroundLayer);
+            }
+            g2.drawImage(backgroundLayer, 0, 0, null);
+        } while (backgroundLayer.contentsLost());
+
+    }//end method drawBackground
+
+    private void renderBackground(Image layer) {
+
+        Graphics2D big = (Graphics2D) layer.getGraphics();
+
+        // Paint the background
+        big.setPaint(tpLight);
+        big.fillRect(0, 0, PANEL_WIDTH, PANEL_HEIGHT);
+
+        // Paint the well
+        big.setPaint(tpDark);
+        for (int i = 1; i < 11; i++) {
+            for (int j = 1; j < 19; j++) {
+                big.fillRect(25*i, 25*j, 25, 25);
+            }
+        }
+
+        // Draw all the cell borders
+        drawCells(big);
+
+        big.dispose();
+
+    }//end method renderBackground
+
     private void drawCells(Graphics2D g2) {
 
         // draw the well
@@ -945,21 +1005,21 @@ class Tetris extends JPanel {
 
     }//end method drawCells
 
-    private void drawData(Graphics2D g2, FontMetrics fm) {
+    private void drawData(Graphics2D g2, FontMetrics fm, BoardSnapshot board) {
 
         g2.setColor(Color.BLACK);
         g2.setFont(sSBig);
 
         g2.drawString("LEVEL", 300, 155);
-        String levelTotalString = "" + level;
+        String levelTotalString = "" + board.getLevel();
         g2.drawString(levelTotalString, 440 - fm.stringWidth(levelTotalString), 155);
 
         g2.drawString("LINES", 300, 200);
-        String lineTotalString = "" + clearedLines;
+        String lineTotalString = "" + board.getClearedLines();
         g2.drawString(lineTotalString, 440 - fm.stringWidth(lineTotalString), 200);
 
         g2.drawString("SCORE", 300, 245);
-        String scoreTotalString = "" + score;
+        String scoreTotalString = "" + board.getScore();
         g2.drawString(scoreTotalString, 440 - fm.stringWidth(scoreTotalString), 245);
 
         if (!quitting) {
@@ -1042,121 +1102,37 @@ class Tetris extends JPanel {
     }//end method drawSoundSymbol
 
     // Draw the falling piece
-    private void drawPiece(Graphics2D g2) {
+    private void drawPiece(Graphics2D g2, BoardSnapshot board) {
 
-        g2.setColor(tetraminoColors[currentPiece]);
-        for (Point p : Tetraminos[currentPiece][rotation]) {
-            g2.fillRect((p.x + pieceOrigin.x) * 25,
-                (p.y + pieceOrigin.y) * 25,
-                25, 25);
-        }
-        drawFallingBevel(g2);
-
-    }//end method drawPiece
+        int currentPiece = board.getCurrentPiece();
+        int rotation = board.getRotation();
+        int pieceX = board.getPieceX();
+        int pieceY = board.getPieceY();
 
-    private void drawFallingBevel(Graphics2D g2) {
-
-        for (Point p : Tetraminos[currentPiece][rotation]) {
-            g2.setColor(Color.BLACK);
-            g2.setStroke(new BasicStroke(2));
-            g2.drawRect((p.x + pieceOrigin.x) * 25,
-                (p.y + pieceOrigin.y) * 25,
-                25, 25);
-            g2.setColor(tetraminoDarkColors[currentPiece]);
-            g2.setStroke(new BasicStroke(4));
-            g2.drawLine((p.x + pieceOrigin.x) * 25 + 3,
-                (p.y + pieceOrigin.y) * 25 + 22,
-                (p.x + pieceOrigin.x) * 25 + 22,
-                (p.y + pieceOrigin.y) * 25 + 22);
-            g2.drawLine((p.x + pieceOrigin.x) * 25 +3,
-                (p.y + pieceOrigin.y) * 25 + 22,
-                (p.x + pieceOrigin.x) * 25 + 3,
-                (p.y + pieceOrigin.y) * 25 + 3);
-            g2.setColor(tetraminoLightColors[currentPiece]);
-            g2.setStroke(new BasicStroke(4));
-            drawTriangle((p.x + pieceOrigin.x) * 25 + 1, (p.x + pieceOrigin.x) * 25 + 5,
-                (p.x + pieceOrigin.x) * 25 + 5,
-                (p.y + pieceOrigin.y) * 25 + 1, (p.y + pieceOrigin.y) * 25 + 1,
-                (p.y + pieceOrigin.y) * 25 + 5, g2);
-            g2.drawLine((p.x + pieceOrigin.x) * 25 + 7,
-                (p.y + pieceOrigin.y) * 25 + 3,
-                (p.x + pieceOrigin.x) * 25 + 22,
-                (p.y + pieceOrigin.y) * 25 + 3);
-            drawTriangle((p.x + pieceOrigin.x) * 25 + 20, (p.x + pieceOrigin.x) * 25 + 24,
-                (p.x + pieceOrigin.x) * 25 + 24,
-                (p.y + pieceOrigin.y) * 25 + 20, (p.y + pieceOrigin.y) * 25 + 20,
-                (p.y + pieceOrigin.y) * 25 + 24, g2);
-            g2.drawLine((p.x + pieceOrigin.x) * 25 + 22,
-                (p.y + pieceOrigin.y) * 25 + 18,
-                (p.x + pieceOrigin.x) * 25 + 22,
-                (p.y + pieceOrigin.y) * 25 + 3);
+        for (int k = 0; k < PieceTable.CELLS; k++) {
+            drawBlock(g2, currentPiece,
+                (PieceTable.CELL_X[currentPiece][rotation][k] + pieceX) * 25,
+                (PieceTable.CELL_Y[currentPiece][rotation][k] + pieceY) * 25);
         }
-
-    }//end method drawBevel
-
-    private void drawFixedBevel(Graphics2D g2, int i, int j, int storePiece) {
-
-        g2.setColor(Color.BLACK);
-        g2.setStroke(new BasicStroke(2));
-        g2.drawRect(25*i, 25*j, 25, 25);
-
-        g2.setColor(tetraminoDarkColors[storePiece]);
-        g2.setStroke(new BasicStroke(4));
-        g2.drawLine((25*i) + 3,
-            (25*j) + 22,
-            (25*i) + 22,
-            (25*j) + 22);
-        g2.drawLine((25*i) +3,
-            (25*j) + 22,
-            (25*i) + 3,
-            (25*j) + 3);
-        g2.setColor(tetraminoLightColors[storePiece]);
+        // The overlays drawn after the piece expect the wide block stroke
         g2.setStroke(new BasicStroke(4));
-        drawTriangle((25*i) + 1, (25*i) + 5, (25*i) + 5,
-            (25*j) + 1, (25*j) + 1, (25*j) + 5, g2);
-        g2.drawLine((25*i) + 7,
-            (25*j) + 3,
-            (25*i) + 22,
-            (25*j) + 3);
-        drawTriangle((25*i) + 20, (25*i) + 24, (25*i) + 24,
-            (25*j) + 20, (25*j) + 20, (25*j) + 24, g2);
-        g2.drawLine((25*i) + 22,
-            (25*j) + 18,
-            (25*i) + 22,
-            (25*j) + 3);
-
-    }//end method drawFixedBevel
-
-    private void allowPause() {
-
-        synchronized(lock) {
-            while(paused || quitting) {
-                try {
-                    lock.wait();
-                } catch(InterruptedException e) {
-                    // do nothing
-                }
-            }
-        }
-
-    }//end method allowPause
 
+    }//end method drawPiece
 
     private void pauseActions() {
 
         paused = !paused;
+        // Moves only repaint what they touch, so the overlay and buttons are redrawn both ways
+        repaint();
 
             if (paused) {
-                repaint();
-                SoundUtils.stopPlaying();
+                sound.stopPlaying();
             }
             else if(soundIsOn) {
-                SoundUtils.startPlaying();
+                sound.startPlaying();
             }
 
-        synchronized(lock) {
-            lock.notifyAll();
-        }
+        scheduler.wake();
 
     }//end method pauseActions
 
@@ -1164,11 +1140,11 @@ class Tetris extends JPanel {
 
         if (soundIsOn) {
             soundIsOn = false;
-            SoundUtils.stopPlaying();
+            sound.stopPlaying();
         }
         else {
-            game.soundIsOn = true;
-            SoundUtils.startPlaying();
+            soundIsOn = true;
+            sound.startPlaying();
         }
         repaint();
 
@@ -1190,18 +1166,16 @@ class Tetris extends JPanel {
     private void quitActions() {
 
         quitting = !quitting;
+        repaint();
 
         if (quitting) {
-            repaint();
-            SoundUtils.stopPlaying();
+            sound.stopPlaying();
         }
         else if (soundIsOn) {
-            SoundUtils.startPlaying();
+            sound.startPlaying();
         }
 
-        synchronized(lock) {
-            lock.notifyAll();
-        }
+        scheduler.wake();
 
     }//end method quitActions
 
@@ -1209,32 +1183,35 @@ class Tetris extends JPanel {
 
         gameOver = true;
         isAlive = false;
+        publishBoard();
         repaint();
-        SoundUtils.stopPlaying();
-
-        DateFormat dateFormat = new SimpleDateFormat("MMM d, yyyy");
-        DateFormat timeFormat = new SimpleDateFormat("h:mm a");
-        Date date = new Date();
-        String pattern = "#,###";
-        DecimalFormat df = new DecimalFormat(pattern);
-
-        try (BufferedWriter bw1 = new BufferedWriter(new FileWriter(dateFile, true));
-             BufferedWriter bw2 = new BufferedWriter(new FileWriter(timeFile, true));
-             BufferedWriter bw3 = new BufferedWriter(new FileWriter(scoreFile, true));
-             BufferedWriter bw4 = new BufferedWriter(new FileWriter(plainScoreFile, true));
-             BufferedWriter bw5 = new BufferedWriter(new FileWriter(levelFile, true))) {
-
-            bw1.write("" + dateFormat.format(date) + "\n");
-            bw2.write("" + timeFormat.format(date) + "\n");
-            bw3.write("" + df.format(score) + "\n");
-            bw4.write("" + score + "\n");
-            bw5.write("" + level + "\n");
-        } catch (IOException e) {
-            //nothing
+        sound.stopPlaying();
+
+        long time = System.currentTimeMillis();
+        if (leaderboard != null) {
+            leaderboard.add(new ScoreLog.Record(time, engine.getScore(),
+                engine.getLevel(), engine.getClearedLines()));
         }
+        saveReplay(recorder.finish(engine.getScore(), engine.getLevel(), engine.getClearedLines()), time);
 
     }//end method gameOverActions
 
+    // Writes the replay on the writer thread, named after the time its score was logged
+    private void saveReplay(Replay replay, long time) {
+
+        replayWriter.execute(() -> {
+            try {
+                if (!REPLAY_DIR.isDirectory() && !REPLAY_DIR.mkdirs()) {
+                    throw new IOException("cannot create " + REPLAY_DIR);
+                }
+                replay.write(new File(REPLAY_DIR, "game-" + time + ".tvr"));
+            } catch (IOException e) {
+                System.err.println("Replay not saved: " + e.getMessage());
+            }
+        });
+
+    }//end method saveReplay
+
     private boolean isActive() {
 
         return (!paused && !quitting && isStarted && !gameOver);
@@ -1243,23 +1220,44 @@ class Tetris extends JPanel {
 
     private void viewHighscores() {
 
+        if (scoresServer == null) {
+            return;
+        }
         try {
-            Desktop.getDesktop().browse(new URI("http://localhost/leaderboardFiles/leaderboard.php"));
+            Desktop.getDesktop().browse(new URI("http://localhost:" + scoresServer.getPort() + "/"));
         } catch (IOException | URISyntaxException e) {
             e.printStackTrace();
         }
 
     }//end method viewHighScores
 
-    private static void resetGame(boolean midGame) {
+    private void resetGame(boolean midGame) {
 
-        game.init();
+        init();
         if (!midGame) {
-            SoundUtils.startPlaying();
+            sound.startPlaying();
         }
 
     }//end method resetGame
 
+    // Frame rate given to --active-render, 0 for as fast as the buffer flips allow,
+    // or ACTIVE_FPS with a usage line if it is not a whole number of at least 0
+    private static int parseFps(String value) {
+
+        try {
+            int fps = Integer.parseInt(value);
+            if (fps >= 0) {
+                return fps;
+            }
+        } catch (NumberFormatException e) {
+            //reported below
+        }
+        System.err.println("Usage: --active-render[=<frames per second, or 0 for uncapped>]; drawing at "
+            + ACTIVE_FPS + " fps instead of " + value);
+        return ACTIVE_FPS;
+
+    }//end method parseFps
+
     public static void main(String[] args) {
 
         JFrame f = new JFrame("tEVtris");
@@ -1267,12 +1265,42 @@ class Tetris extends JPanel {
         f.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
         f.setSize(12*25+210, 23*25);
 
-        game = new Tetris();
+        Tetris game = new Tetris();
         game.init();
         f.add(game);
         f.setVisible(true);
         f.setLocationRelativeTo(null);
 
+        // "--weights=<checkpoint>" has the bots play with the fittest weights WeightTuner saved there
+        double[] weights = Bot.DEFAULT_WEIGHTS;
+        for (String arg : args) {
+            if (arg.startsWith("--weights=")) {
+                try {
+                    weights = WeightTuner.bestWeights(new File(arg.substring("--weights=".length())));
+                } catch (IOException e) {
+                    System.err.println("Bot keeps its default weights: " + e.getMessage());
+                }
+            }
+        }
+
+        // "--active-render" draws from a dedicated loop at ACTIVE_FPS, "--active-render=<fps>" picks the rate, 0 uncapped
+        for (String arg : args) {
+            if (arg.equals("--active-render")) {
+                new ActiveRenderer(f, game, ACTIVE_FPS).start();
+            }
+            else if (arg.startsWith("--active-render=")) {
+                new ActiveRenderer(f, game, parseFps(arg.substring("--active-render=".length()))).start();
+            }
+            // "--bot" lets the computer play once the game is started, "--bot=beam" searches the whole preview
+            else if (arg.equals("--bot")) {
+                game.setBot(new Bot(weights, true));
+            }
+            else if (arg.equals("--bot=beam")) {
+                game.setBot(new BeamPlanner(weights, 64, 1 + GameEngine.PREVIEW,
+                    5_000_000L, ForkJoinPool.commonPool()));
+            }
+        }
+
         f.addKeyListener(new KeyListener() {
             @Override
             public void keyTyped(KeyEvent e) {
@@ -1283,19 +1311,19 @@ class Tetris extends JPanel {
             public void keyPressed(KeyEvent e) {
                 switch (e.getKeyCode()) {
                     case KeyEvent.VK_LEFT:
-                        if (game.isActive()) game.slide(-1);
+                        if (game.isActive()) game.input(GameEngine.Action.LEFT);
                         break;
                     case KeyEvent.VK_RIGHT:
-                        if (game.isActive()) game.slide(1);
+                        if (game.isActive()) game.input(GameEngine.Action.RIGHT);
                         break;
                     case KeyEvent.VK_UP:
-                        if (game.isActive()) game.rotate();
+                        if (game.isActive()) game.input(GameEngine.Action.ROTATE);
                         break;
                     case KeyEvent.VK_DOWN:
-                        if (game.isActive()) game.dropPiece();
+                        if (game.isActive()) game.input(GameEngine.Action.DROP);
                         break;
                     case KeyEvent.VK_SPACE:
-                        if (game.isActive()) game.slamPiece();
+                        if (game.isActive()) game.input(GameEngine.Action.SLAM);
                         break;
                     case KeyEvent.VK_P:
                         if (!game.quitting && game.isStarted && !game.gameOver) game.pauseActions();
@@ -1315,11 +1343,15 @@ class Tetris extends JPanel {
                     case KeyEvent.VK_ENTER:
                         if (!game.isStarted) {
                             game.isStarted = true;
-                            for (int i = 1; i < game.level; i+=2) {
-                                SoundUtils.setSongSpeed();
+                            for (int i = 1; i < game.board.get().getLevel(); i+=2) {
+                                game.sound.setSongSpeed();
+                            }
+                            game.sound.resetStartNote();
+                            game.sound.startPlaying();
+                            game.scheduler.wake();
+                            if (game.bot != null) {
+                                game.scheduler.post(game::botTurn);
                             }
-                            SoundUtils.resetStartNote();
-                            SoundUtils.startPlaying();
                         }
                         break;
                 }
@@ -1331,57 +1363,7 @@ class Tetris extends JPanel {
             }
         });//end addKeyListener
 
-        Thread gameFlow = new Thread(() -> {
-            while (!game.hasExited) {
-                if (game.isAlive && game.isStarted) {
-                    game.allowPause();
-                    try {
-                        if (game.isStalled && game.isSlammed) {
-                            Thread.sleep(800);
-                        }
-                        else if (game.level > 9) {
-                            if (game.isStalled && !game.isSlammed) {
-                                Thread.sleep(800);
-                            }
-                            else {
-                                Thread.sleep(150);
-                            }
-                        }
-                        else {
-                            if (game.isStalled) {
-                                Thread.sleep(800);
-                            }
-                            else {
-                                Thread.sleep(1100 - game.level*100);
-                            }
-                        }
-                        if (game.isSlammed) {
-                            game.isSlammed = false;
-                            game.flashing = false;
-                        }
-                        else if (!game.isSlammed) {
-                            game.isStalled = false;
-                            game.flashing = false;
-                        }
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                    if (!game.paused && !game.quitting) {
-                        game.dropPiece();
-
-                    }
-                }
-                else {
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
-        });//end gameFflow
-
-        gameFlow.start();
+        game.scheduler.start();
 
 
         Thread songThread = new Thread(() -> {
@@ -1396,10 +1378,10 @@ class Tetris extends JPanel {
                             Thread.sleep(200);
                         }
                         while (game.soundIsOn && game.isStarted) {
-                            if (!SoundUtils.getPlaying()) {
+                            if (!game.sound.getPlaying()) {
                                 Thread.sleep(200);
                             } else {
-                                SoundUtils.playSong();
+                                game.sound.playSong();
                             }
                         }
                     }
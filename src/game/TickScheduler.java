@@ -0,0 +1,303 @@
+package game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Fixed-timestep game clock that runs gravity, lock delay and the
+ *          line-clear flash as timed events on its own thread, or on a
+ *          TimerWheel shared with other games. It is also the only thread that
+ *          changes the game, other threads post commands to it
+ */
+
+class TickScheduler extends TimerWheel.Task implements Runnable {
+
+    // What the clock drives, all called from the scheduler thread
+    interface Target {
+        // True while game time should advance, i.e. started, alive and not paused
+        boolean isRunning();
+        int getLevel();
+        boolean isGrounded();
+        void gravity();
+        void flashDone();
+    }
+
+    // Length of one game tick
+    static final long STEP = 1_000_000L;
+
+    // How long cleared lines flash before the well moves again
+    static final long FLASH_TIME = 800_000_000L;
+
+    // Lock delay never drops below this, so fast levels stay steerable
+    static final long MIN_LOCK_DELAY = 150_000_000L;
+
+    // Fastest gravity, one row per 60 Hz frame
+    static final long MIN_GRAVITY = 16_000_000L;
+
+    // Longest stretch of real time replayed at once, e.g. after the machine sleeps
+    private static final long MAX_CATCH_UP = 250_000_000L;
+
+    // How long to park when idle before checking the game state again
+    private static final long IDLE_POLL = 50_000_000L;
+
+    private final Target target;
+    private volatile boolean running = true;
+    private Thread thread;
+    private TimerWheel wheel;
+
+    // Real time already turned into game time, and the part of a step left over, when run on a wheel
+    private long last;
+    private long accumulator;
+
+    // Commands posted by the input and UI threads, run in order on the scheduler thread
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+
+    // Events raised while a command or event ran, consumed at the start of the next tick
+    private boolean restartPending = true;
+    private boolean clearPending = false;
+    private boolean lockPending = false;
+
+    // Game time and event deadlines, only touched by the scheduler thread
+    private long gameTime = 0;
+    private long nextGravity = 0;
+    private long lockDeadline = -1;
+    private long flashEnd = -1;
+
+    TickScheduler(Target target) {
+        this.target = target;
+    }
+
+    void start() {
+
+        thread = new Thread(this, "gameFlow");
+        thread.setDaemon(true);
+        thread.start();
+
+    }//end method start
+
+    // Runs on the wheel's thread instead of one of its own
+    void start(TimerWheel wheel) {
+
+        this.wheel = wheel;
+        last = System.nanoTime();
+        wheel.wake(this);
+
+    }//end method start
+
+    void stop() {
+
+        running = false;
+        wake();
+
+    }//end method stop
+
+    // Queues a command for the scheduler thread, safe to call from any thread
+    void post(Runnable command) {
+
+        commands.offer(command);
+        wake();
+
+    }//end method post
+
+    // Unparks the scheduler after the game state changed, e.g. resuming from pause
+    void wake() {
+
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        else if (wheel != null) {
+            wheel.wake(this);
+        }
+
+    }//end method wake
+
+    // The following three are only called on the scheduler thread, from commands or events
+
+    // A new game was started, so the timers start over
+    void restart() {
+        restartPending = true;
+    }
+
+    // Lines were cleared, so hold gravity while they flash
+    void linesCleared() {
+        clearPending = true;
+    }
+
+    // The falling piece locked, so any lock delay belongs to a piece that is gone
+    void pieceLocked() {
+        lockPending = true;
+    }
+
+    // Ticks of game time since the current game started, only read on the scheduler thread
+    long getTick() {
+        return restartPending ? 0 : gameTime / STEP;
+    }
+
+    // Time between gravity drops: 1000 ms at level 1 down to 150 ms at level 10, then 15% faster per level
+    static long gravityInterval(int level) {
+
+        if (level <= 9) {
+            return (1100 - level*100) * 1_000_000L;
+        }
+        long interval = (long) (150_000_000L * Math.pow(0.85, level - 10));
+        return Math.max(interval - interval % STEP, MIN_GRAVITY);
+
+    }//end method gravityInterval
+
+    // Time a grounded piece may still be moved before it locks
+    static long lockDelay(int level) {
+        return Math.max(gravityInterval(level), MIN_LOCK_DELAY);
+    }
+
+    @Override
+    public void run() {
+
+        long last = System.nanoTime();
+        long accumulator = 0;
+
+        while (running) {
+            runCommands();
+            long now = System.nanoTime();
+            if (!target.isRunning()) {
+                last = now;
+                accumulator = 0;
+                LockSupport.parkNanos(IDLE_POLL);
+                continue;
+            }
+
+            accumulator = Math.min(accumulator + now - last, MAX_CATCH_UP);
+            last = now;
+            while (accumulator >= STEP && target.isRunning()) {
+                advance();
+                accumulator -= STEP;
+                runCommands();
+            }
+
+            long wait = Math.min(nextEvent() - gameTime - accumulator, IDLE_POLL);
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+
+    }//end method run
+
+    // The wheel's version of run: catches game time up with now, returns when to come back
+    @Override
+    long fire(long now) {
+
+        if (!running) {
+            return -1;
+        }
+        runCommands();
+        if (!target.isRunning()) {
+            last = now;
+            accumulator = 0;
+            return now + IDLE_POLL;
+        }
+
+        accumulator = Math.min(accumulator + now - last, MAX_CATCH_UP);
+        last = now;
+        while (accumulator >= STEP && target.isRunning()) {
+            // Steps before the next event change nothing, so pass over them in one go
+            if (!restartPending && !clearPending && !lockPending) {
+                long idle = Math.min(nextEvent() - gameTime, accumulator) / STEP - 1;
+                if (idle > 0) {
+                    gameTime += idle * STEP;
+                    accumulator -= idle * STEP;
+                }
+            }
+            advance();
+            accumulator -= STEP;
+            runCommands();
+        }
+
+        if (restartPending || clearPending || lockPending) {
+            return now + STEP - accumulator;
+        }
+        // Commands wake the wheel when posted, so unlike run there is no need to poll in between
+        return now + Math.max(nextEvent() - gameTime - accumulator, 0);
+
+    }//end method fire
+
+    private void runCommands() {
+
+        Runnable command;
+        while ((command = commands.poll()) != null) {
+            command.run();
+        }
+
+    }//end method runCommands
+
+    // Moves game time forward by one step and fires whatever events came due
+    private void advance() {
+
+        if (restartPending) {
+            restartPending = false;
+            gameTime = 0;
+            nextGravity = gravityInterval(target.getLevel());
+            lockDeadline = -1;
+            flashEnd = -1;
+            clearPending = false;
+            lockPending = false;
+        }
+        if (lockPending) {
+            lockPending = false;
+            lockDeadline = -1;
+        }
+        if (clearPending) {
+            clearPending = false;
+            flashEnd = gameTime + FLASH_TIME;
+            nextGravity = flashEnd;
+            lockDeadline = -1;
+        }
+
+        gameTime += STEP;
+
+        if (flashEnd >= 0) {
+            if (gameTime < flashEnd) {
+                return;
+            }
+            flashEnd = -1;
+            target.flashDone();
+        }
+
+        int level = target.getLevel();
+        if (gameTime >= nextGravity) {
+            nextGravity += gravityInterval(level);
+            if (!target.isGrounded()) {
+                target.gravity();
+                lockDeadline = target.isGrounded() ? gameTime + lockDelay(level) : -1;
+            }
+            else if (lockDeadline < 0) {
+                lockDeadline = gameTime + lockDelay(level) - gravityInterval(level);
+            }
+        }
+
+        if (lockDeadline >= 0 && gameTime >= lockDeadline) {
+            lockDeadline = -1;
+            if (target.isGrounded()) {
+                // Gravity on a grounded piece locks it
+                target.gravity();
+                lockPending = false;
+            }
+        }
+
+    }//end method advance
+
+    // Game time of the next timed event
+    private long nextEvent() {
+
+        if (flashEnd >= 0) {
+            return flashEnd;
+        }
+        if (lockDeadline >= 0) {
+            return Math.min(nextGravity, lockDeadline);
+        }
+        return nextGravity;
+
+    }//end method nextEvent
+
+}//end class TickScheduler
@@ -0,0 +1,188 @@
+package game;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: One thread that runs the timed events of many games, keeping each
+ *          game's next deadline in a hashed wheel of 1 ms slots instead of
+ *          parking a thread per game until it comes due
+ */
+
+final class TimerWheel implements Runnable {
+
+    // Something the wheel runs at its deadlines, linked straight into the wheel's slots
+    abstract static class Task {
+        // Slot list links and deadline, only touched by the wheel thread
+        private Task prev;
+        private Task next;
+        private int slot = -1;
+        private long deadline;
+
+        // Set while the task waits in the woken queue, so it is queued once however often it is woken
+        private final AtomicBoolean woken = new AtomicBoolean();
+
+        // Set once the task has thrown, after which the wheel never runs it again
+        private boolean dropped;
+
+        // Runs whatever came due by now, returns the System.nanoTime() deadline to run next, or -1 to leave the wheel
+        abstract long fire(long now);
+    }
+
+    // Slot width and count; deadlines further out than the wheel wait there for as many turns as it takes
+    static final long RESOLUTION = TickScheduler.STEP;
+    private static final int SLOTS = 4096;
+
+    // Lateness of fired deadlines, bucket b counting those late by [2^(b-1), 2^b) microseconds
+    static final int LATENESS_BUCKETS = 24;
+
+    private final Task[] slots = new Task[SLOTS];
+    private final Queue<Task> wokenTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicLongArray lateness = new AtomicLongArray(LATENESS_BUCKETS);
+    private final long origin = System.nanoTime();
+    private final String name;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    // Next slot to run, as a count of RESOLUTIONs since origin
+    private long tick = 0;
+
+    TimerWheel(String name) {
+        this.name = name;
+    }
+
+    void start() {
+
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+
+    }//end method start
+
+    void stop() {
+
+        running = false;
+        LockSupport.unpark(thread);
+
+    }//end method stop
+
+    // Has the wheel run the task as soon as it can, safe to call from any thread; also how tasks join
+    void wake(Task task) {
+
+        if (task.woken.compareAndSet(false, true)) {
+            wokenTasks.offer(task);
+            LockSupport.unpark(thread);
+        }
+
+    }//end method wake
+
+    // Count of fired deadlines in each lateness bucket so far
+    long getLateness(int bucket) {
+        return lateness.get(bucket);
+    }
+
+    @Override
+    public void run() {
+
+        while (running) {
+            long now = System.nanoTime();
+            Task task;
+            while ((task = wokenTasks.poll()) != null) {
+                task.woken.set(false);
+                unlink(task);
+                fire(task, now, false);
+            }
+            while (origin + tick * RESOLUTION <= now) {
+                runSlot((int) (tick & (SLOTS - 1)), now);
+                tick++;
+            }
+            if (wokenTasks.isEmpty()) {
+                LockSupport.parkNanos(origin + tick * RESOLUTION - System.nanoTime());
+            }
+        }
+
+    }//end method run
+
+    // Fires every task in the slot that is due, leaving those waiting for a later turn of the wheel
+    private void runSlot(int slot, long now) {
+
+        Task task = slots[slot];
+        while (task != null) {
+            // Fired tasks are relinked at the head of their new slot, so go on from the one saved here
+            Task next = task.next;
+            if (task.deadline <= now) {
+                unlink(task);
+                fire(task, now, true);
+            }
+            task = next;
+        }
+
+    }//end method runSlot
+
+    private void fire(Task task, long now, boolean timed) {
+
+        if (task.dropped) {
+            return;
+        }
+        if (timed) {
+            long late = (now - task.deadline) / 1000;
+            lateness.incrementAndGet(Math.min(64 - Long.numberOfLeadingZeros(late), LATENESS_BUCKETS - 1));
+        }
+        long deadline;
+        try {
+            deadline = task.fire(now);
+        } catch (RuntimeException e) {
+            // One broken game must not stop every other game on this wheel
+            System.err.println(name + ": dropped a task that threw " + e);
+            e.printStackTrace();
+            task.dropped = true;
+            return;
+        }
+        if (deadline >= 0) {
+            link(task, deadline);
+        }
+
+    }//end method fire
+
+    private void link(Task task, long deadline) {
+
+        // Rounded up to a whole slot, and never into one already run
+        long at = Math.max((deadline - origin + RESOLUTION - 1) / RESOLUTION, tick + 1);
+        int slot = (int) (at & (SLOTS - 1));
+        task.deadline = deadline;
+        task.slot = slot;
+        task.prev = null;
+        task.next = slots[slot];
+        if (task.next != null) {
+            task.next.prev = task;
+        }
+        slots[slot] = task;
+
+    }//end method link
+
+    private void unlink(Task task) {
+
+        if (task.slot < 0) {
+            return;
+        }
+        if (task.prev != null) {
+            task.prev.next = task.next;
+        }
+        else {
+            slots[task.slot] = task.next;
+        }
+        if (task.next != null) {
+            task.next.prev = task.prev;
+        }
+        task.prev = null;
+        task.next = null;
+        task.slot = -1;
+
+    }//end method unlink
+
+}//end class TimerWheel
@@ -0,0 +1,47 @@
+package game;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Unsigned LEB128 varints, seven bits per byte with the high bit set
+ *          on all but the last, used by replays and saved game states
+ */
+
+final class Varint {
+
+    // Longest varint a long can need
+    static final int MAX_LENGTH = 10;
+
+    private Varint() {
+    }
+
+    // Writes value at pos, returns the position after it
+    static int write(byte[] buf, int pos, long value) {
+
+        while ((value & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+        return pos;
+
+    }//end method write
+
+    // Reads a varint at pos[0] and moves pos[0] past it
+    static long read(byte[] buf, int[] pos) {
+
+        long value = 0;
+        int shift = 0;
+        int p = pos[0];
+        byte b;
+        do {
+            b = buf[p++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        pos[0] = p;
+        return value;
+
+    }//end method read
+
+}//end class Varint
@@ -0,0 +1,144 @@
+package game;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: A versus match of two or more engines advanced in lockstep frames,
+ *          lines cleared by one player rising as garbage under the next, and
+ *          deterministic so every client simulating the same inputs agrees
+ */
+
+final class Versus {
+
+    // Input codes, one per player per frame: nothing, or 1 + a GameEngine.Action ordinal
+    static final byte NONE = 0;
+
+    // Length of one frame of game time
+    static final long FRAME = 16_666_667L;
+
+    private static final GameEngine.Action[] ACTIONS = GameEngine.Action.values();
+
+    private final GameEngine[] players;
+    private int frame = 0;
+
+    // Every player deals the same pieces from seed, so neither starts with better luck
+    Versus(int count, long seed, int level) {
+
+        players = new GameEngine[count];
+        for (int i = 0; i < count; i++) {
+            players[i] = new GameEngine();
+            players[i].reset(seed);
+            players[i].setLevel(level);
+        }
+
+    }//end constructor
+
+    static byte input(GameEngine.Action action) {
+        return (byte) (1 + action.ordinal());
+    }
+
+    // Plays one frame: each player's input in turn, then gravity, then the garbage each one sent
+    void step(byte[] inputs) {
+
+        for (int i = 0; i < players.length; i++) {
+            if (inputs[i] != NONE) {
+                players[i].step(ACTIONS[inputs[i] - 1]);
+            }
+        }
+        for (GameEngine player : players) {
+            long interval = Math.max(TickScheduler.gravityInterval(player.getLevel()) / FRAME, 1);
+            if (frame % interval == interval - 1) {
+                player.tick();
+            }
+        }
+        for (int i = 0; i < players.length; i++) {
+            int rows = players[i].takeGarbage();
+            int target = nextAlive(i);
+            if (rows > 0 && target >= 0) {
+                players[target].receiveGarbage(rows);
+            }
+        }
+        frame++;
+
+    }//end method step
+
+    // The first player after i still in the game, or -1 if there is none
+    private int nextAlive(int i) {
+
+        for (int k = 1; k < players.length; k++) {
+            int j = (i + k) % players.length;
+            if (!players[j].isGameOver()) {
+                return j;
+            }
+        }
+        return -1;
+
+    }//end method nextAlive
+
+    // Saves the frame and every player, returns the position after them
+    int writeState(byte[] buf, int pos) {
+
+        pos = Varint.write(buf, pos, frame);
+        for (GameEngine player : players) {
+            pos = player.writeState(buf, pos);
+        }
+        return pos;
+
+    }//end method writeState
+
+    void readState(byte[] buf, int[] pos) {
+
+        frame = (int) Varint.read(buf, pos);
+        for (GameEngine player : players) {
+            player.readState(buf, pos);
+        }
+
+    }//end method readState
+
+    // Room writeState may need
+    int getMaxState() {
+        return Varint.MAX_LENGTH + players.length * GameEngine.MAX_STATE;
+    }
+
+    int getFrame() {
+        return frame;
+    }
+
+    int getPlayerCount() {
+        return players.length;
+    }
+
+    GameEngine getPlayer(int i) {
+        return players[i];
+    }
+
+    // True once at most one player is left
+    boolean isOver() {
+
+        int alive = 0;
+        for (GameEngine player : players) {
+            if (!player.isGameOver()) {
+                alive++;
+            }
+        }
+        return alive <= 1;
+
+    }//end method isOver
+
+    // The player left standing, or -1 while the match goes on or if the last ones went out together
+    int getWinner() {
+
+        int winner = -1;
+        for (int i = 0; i < players.length; i++) {
+            if (!players[i].isGameOver()) {
+                if (winner >= 0) {
+                    return -1;
+                }
+                winner = i;
+            }
+        }
+        return winner;
+
+    }//end method getWinner
+
+}//end class Versus
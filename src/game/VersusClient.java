@@ -0,0 +1,353 @@
+package game;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: One player's side of a versus match over UDP. Local input is played
+ *          at once against a guess of the others'; when their real input turns
+ *          out different, the match is restored from the saved frame and played
+ *          forward again
+ */
+
+final class VersusClient {
+
+    // Frames of saved states and inputs kept, a power of two
+    private static final int HISTORY = 128;
+    private static final int MASK = HISTORY - 1;
+
+    // Furthest the local player may run ahead of the input heard from the others
+    static final int MAX_ROLLBACK = 60;
+
+    // Packet: sender, the sender's latest frame of the receiver's input, first frame, count, then that many inputs
+    private static final int PACKET_HEADER = 13;
+
+    private final Versus match;
+    private final int me;
+    private final int players;
+    private final DatagramChannel channel;
+    private final SocketAddress[] peers;
+
+    // Input known for each player and frame, and the input each frame was last simulated with
+    private final byte[][] inputs;
+    private final byte[][] used;
+    private final byte[] frameInputs;
+
+    // Latest frame of each player's input known here without gaps, and of this player's input each peer has
+    private final int[] confirmed;
+    private final int[] acked;
+
+    // Match state before each frame, and the earliest frame that was simulated with a wrong guess
+    private final byte[][] states = new byte[HISTORY][];
+    private final int[] readPos = {0};
+    private int rollbackFrom = Integer.MAX_VALUE;
+
+    private final ByteBuffer packet;
+
+    // Counters for the report
+    private long rollbacks = 0;
+    private long replayedFrames = 0;
+    private long saves = 0;
+    private long saveNanos = 0;
+    private long restoreNanos = 0;
+
+    // Player me of a match whose players listen on peers, peers[me] being this client's own address
+    VersusClient(Versus match, int me, SocketAddress[] peers, DatagramChannel channel) throws IOException {
+
+        this.match = match;
+        this.me = me;
+        this.players = match.getPlayerCount();
+        this.peers = peers;
+        this.channel = channel;
+        channel.configureBlocking(false);
+        inputs = new byte[players][HISTORY];
+        used = new byte[players][HISTORY];
+        frameInputs = new byte[players];
+        confirmed = new int[players];
+        acked = new int[players];
+        Arrays.fill(confirmed, -1);
+        Arrays.fill(acked, -1);
+        for (int k = 0; k < HISTORY; k++) {
+            states[k] = new byte[match.getMaxState()];
+        }
+        packet = ByteBuffer.allocate(PACKET_HEADER + HISTORY).order(ByteOrder.LITTLE_ENDIAN);
+
+    }//end constructor
+
+    Versus getMatch() {
+        return match;
+    }
+
+    // Plays the next frame with this player's input; returns false without playing it when
+    // the others are too far behind, in which case the same input should be offered again
+    boolean advance(byte input) throws IOException {
+
+        receive();
+        int frame = match.getFrame();
+        for (int p = 0; p < players; p++) {
+            if (p != me && frame - confirmed[p] > MAX_ROLLBACK) {
+                send();
+                return false;
+            }
+        }
+        inputs[me][frame & MASK] = input;
+        confirmed[me] = frame;
+        rollback();
+        simulate(frame);
+        send();
+        return true;
+
+    }//end method advance
+
+    // Exchanges input without playing a frame, e.g. while waiting for the others to catch up
+    void poll() throws IOException {
+
+        receive();
+        rollback();
+        send();
+
+    }//end method poll
+
+    // True once every player's input up to the current frame is in and has been played,
+    // and every peer has all of this player's input
+    boolean isSettled() {
+
+        for (int p = 0; p < players; p++) {
+            if (confirmed[p] < match.getFrame() - 1 || (p != me && acked[p] < confirmed[me])) {
+                return false;
+            }
+        }
+        return rollbackFrom == Integer.MAX_VALUE;
+
+    }//end method isSettled
+
+    // Plays frame with the known input, guessing no move for any player not yet heard from
+    private void simulate(int frame) {
+
+        long start = System.nanoTime();
+        match.writeState(states[frame & MASK], 0);
+        saveNanos += System.nanoTime() - start;
+        saves++;
+        for (int p = 0; p < players; p++) {
+            byte input = (frame <= confirmed[p]) ? inputs[p][frame & MASK] : Versus.NONE;
+            used[p][frame & MASK] = input;
+            frameInputs[p] = input;
+        }
+        match.step(frameInputs);
+
+    }//end method simulate
+
+    // Restores the first wrongly guessed frame and plays forward again to where the match was
+    private void rollback() {
+
+        int now = match.getFrame();
+        if (rollbackFrom >= now) {
+            rollbackFrom = Integer.MAX_VALUE;
+            return;
+        }
+        long start = System.nanoTime();
+        readPos[0] = 0;
+        match.readState(states[rollbackFrom & MASK], readPos);
+        restoreNanos += System.nanoTime() - start;
+        rollbacks++;
+        for (int frame = rollbackFrom; frame < now; frame++) {
+            simulate(frame);
+            replayedFrames++;
+        }
+        rollbackFrom = Integer.MAX_VALUE;
+
+    }//end method rollback
+
+    private void receive() throws IOException {
+
+        while (true) {
+            packet.clear();
+            if (channel.receive(packet) == null) {
+                return;
+            }
+            packet.flip();
+            if (packet.remaining() < PACKET_HEADER) {
+                continue;
+            }
+            int sender = packet.getInt();
+            int ack = packet.getInt();
+            int first = packet.getInt();
+            int count = packet.get() & 0xFF;
+            if (sender < 0 || sender >= players || sender == me || packet.remaining() < count) {
+                continue;
+            }
+            acked[sender] = Math.max(acked[sender], ack);
+            for (int k = 0; k < count; k++) {
+                int frame = first + k;
+                byte input = packet.get();
+                // Taken in order only; anything after a gap comes again in a later packet
+                if (frame != confirmed[sender] + 1) {
+                    continue;
+                }
+                inputs[sender][frame & MASK] = input;
+                confirmed[sender] = frame;
+                if (frame < match.getFrame() && input != used[sender][frame & MASK]) {
+                    rollbackFrom = Math.min(rollbackFrom, frame);
+                }
+            }
+        }
+
+    }//end method receive
+
+    // Sends each peer every input of this player it has not confirmed yet
+    private void send() throws IOException {
+
+        for (int p = 0; p < players; p++) {
+            if (p == me) {
+                continue;
+            }
+            // Never further back than the inputs still kept, which is as far as a peer can lag
+            int first = Math.max(acked[p] + 1, confirmed[me] - HISTORY + 1);
+            int count = confirmed[me] - first + 1;
+            packet.clear();
+            packet.putInt(me).putInt(confirmed[p]).putInt(first).put((byte) count);
+            for (int k = 0; k < count; k++) {
+                packet.put(inputs[me][(first + k) & MASK]);
+            }
+            packet.flip();
+            channel.send(packet, peers[p]);
+        }
+
+    }//end method send
+
+    long getRollbacks() {
+        return rollbacks;
+    }
+
+    long getReplayedFrames() {
+        return replayedFrames;
+    }
+
+    // Mean time to save the match state before a frame, in nanoseconds
+    double getSaveNanos() {
+        return (double) saveNanos / Math.max(saves, 1);
+    }
+
+    // Mean time to restore the match state at a rollback, in nanoseconds
+    double getRestoreNanos() {
+        return (double) restoreNanos / Math.max(rollbacks, 1);
+    }
+
+    // Plays a bot match between clients on loopback ports, each on its own thread, and checks they
+    // all end on the same state; e.g. java game.VersusClient 2 20000, or add 60 to run at 60 frames a second
+    public static void main(String[] args) throws Exception {
+
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int fps = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+        DatagramChannel[] channels = new DatagramChannel[count];
+        SocketAddress[] peers = new SocketAddress[count];
+        for (int i = 0; i < count; i++) {
+            channels[i] = DatagramChannel.open();
+            channels[i].bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            peers[i] = channels[i].getLocalAddress();
+        }
+
+        VersusClient[] clients = new VersusClient[count];
+        Thread[] threads = new Thread[count];
+        long[] checksums = new long[count];
+        for (int i = 0; i < count; i++) {
+            VersusClient client = new VersusClient(new Versus(count, 42, 5), i, peers, channels[i]);
+            clients[i] = client;
+            int player = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    checksums[player] = client.playBot(frames, fps);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }, "versus-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Versus match = clients[0].getMatch();
+        boolean agreed = true;
+        for (int i = 0; i < count; i++) {
+            VersusClient client = clients[i];
+            GameEngine player = client.getMatch().getPlayer(i);
+            System.out.printf("player %d: %d lines, %d garbage waiting, %s; %d rollbacks replaying %d frames, "
+                    + "save %.2f us, restore %.2f us, state %08x%n",
+                i, player.getClearedLines(), player.getPendingGarbage(), player.isGameOver() ? "out" : "in",
+                client.getRollbacks(), client.getReplayedFrames(),
+                client.getSaveNanos() / 1e3, client.getRestoreNanos() / 1e3, checksums[i]);
+            agreed &= checksums[i] == checksums[0];
+        }
+        System.out.printf("%d frames, %s, winner %s%n", match.getFrame(),
+            agreed ? "every client agrees" : "CLIENTS DISAGREE",
+            match.getWinner() >= 0 ? "player " + match.getWinner() : "none yet");
+
+    }//end method main
+
+    // Plays this client's player with a bot for the given frames, one move a frame, waits for
+    // every input to settle, and returns a checksum of the final state
+    private long playBot(int frames, int fps) throws IOException {
+
+        Bot bot = new Bot();
+        GameEngine.Action[] moves = new GameEngine.Action[Planner.MAX_MOVES];
+        int queued = 0;
+        int next = 0;
+        long start = System.nanoTime();
+
+        while (match.getFrame() < frames) {
+            if (fps > 0) {
+                long due = start + match.getFrame() * 1_000_000_000L / fps;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    poll();
+                    LockSupport.parkNanos(Math.min(wait, 1_000_000L));
+                    continue;
+                }
+            }
+            GameEngine player = match.getPlayer(me);
+            if (next == queued && !player.isGameOver()) {
+                queued = bot.plan(player, moves);
+                next = 0;
+            }
+            byte input = (next < queued) ? Versus.input(moves[next]) : Versus.NONE;
+            if (advance(input)) {
+                next = Math.min(next + 1, queued);
+            }
+            else {
+                LockSupport.parkNanos(100_000L);
+            }
+        }
+
+        // Keep answering until everyone's input is in and played, then a little longer so the
+        // others hear that theirs arrived too
+        long settleBy = System.nanoTime() + 2_000_000_000L;
+        while (!isSettled() && System.nanoTime() < settleBy) {
+            poll();
+            LockSupport.parkNanos(100_000L);
+        }
+        for (int k = 0; k < 20; k++) {
+            poll();
+            LockSupport.parkNanos(1_000_000L);
+        }
+
+        byte[] state = new byte[match.getMaxState()];
+        CRC32 crc = new CRC32();
+        crc.update(state, 0, match.writeState(state, 0));
+        return crc.getValue();
+
+    }//end method playBot
+
+}//end class VersusClient
@@ -0,0 +1,342 @@
+package game;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Project: TetrisCloneAttempt
+ * Date: 10/18/26
+ * Purpose: Evolves the bot's evaluator weights with a genetic algorithm,
+ *          playing every candidate's seeded headless games in parallel and
+ *          saving each generation so a long run can be resumed
+ */
+
+final class WeightTuner {
+
+    // Fitness credited per piece placed, so surviving longer counts once lines are equal
+    private static final double SURVIVAL = 0.1;
+
+    // Share of the population replaced by offspring each generation
+    private static final double REPLACE = 0.3;
+
+    // Candidates drawn for each tournament when picking parents
+    private static final int TOURNAMENT = 10;
+
+    // Chance a child is mutated, and how far
+    private static final double MUTATION_RATE = 0.05;
+    private static final double MUTATION_STEP = 0.2;
+
+    private static final String CHECKPOINT_HEADER = "tevtris weight tuner checkpoint 1";
+
+    private final int populationSize;
+    private final int games;
+    private final long maxPieces;
+    private final ForkJoinPool pool;
+    private final File checkpoint;
+
+    // Everything the run depends on, so the same seed always evolves the same weights
+    private final PieceQueue.Rng rng;
+    private int generation;
+    private double[][] population;
+    private double[] fitness;
+
+    private final AtomicLong piecesPlayed = new AtomicLong();
+
+    WeightTuner(long seed, int populationSize, int games, long maxPieces, int threads, File checkpoint) {
+
+        this.populationSize = populationSize;
+        this.games = games;
+        this.maxPieces = maxPieces;
+        this.pool = new ForkJoinPool(threads);
+        this.checkpoint = checkpoint;
+        rng = new PieceQueue.Rng(seed);
+        population = new double[populationSize][];
+        for (int i = 0; i < populationSize; i++) {
+            population[i] = randomWeights();
+        }
+        fitness = new double[populationSize];
+
+    }//end constructor
+
+    // Runs until the given generation, resuming from the checkpoint if there is one
+    void run(int generations) throws IOException {
+
+        if (checkpoint.isFile()) {
+            load();
+            System.out.printf("resumed at generation %d%n", generation);
+        }
+        else {
+            scoreAll(population, fitness);
+        }
+
+        while (generation < generations) {
+            long start = System.nanoTime();
+            piecesPlayed.set(0);
+            evolve();
+            generation++;
+            save();
+
+            int best = bestIndex();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("generation %d: best %.1f, mean %.1f, %s, %.0f pieces/s%n",
+                generation, fitness[best], Arrays.stream(fitness).average().orElse(0),
+                Arrays.toString(population[best]), piecesPlayed.get() / seconds);
+        }
+
+    }//end method run
+
+    // Replaces the weakest candidates with children of tournament winners
+    private void evolve() {
+
+        int children = Math.max(1, (int) (populationSize * REPLACE));
+        double[][] offspring = new double[children][];
+        for (int c = 0; c < children; c++) {
+            int a = tournament();
+            int b = tournament();
+            offspring[c] = crossover(population[a], fitness[a], population[b], fitness[b]);
+            if (nextDouble() < MUTATION_RATE) {
+                int f = rng.nextInt(Bot.FEATURES);
+                offspring[c][f] += (nextDouble() * 2 - 1) * MUTATION_STEP;
+                normalize(offspring[c]);
+            }
+        }
+
+        double[] childFitness = new double[children];
+        scoreAll(offspring, childFitness);
+
+        // Weakest first; the stable sort keeps the order fixed for equal fitness
+        Integer[] order = new Integer[populationSize];
+        for (int i = 0; i < populationSize; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> Double.compare(fitness[x], fitness[y]));
+        for (int c = 0; c < children; c++) {
+            population[order[c]] = offspring[c];
+            fitness[order[c]] = childFitness[c];
+        }
+
+    }//end method evolve
+
+    // Plays every candidate's games at once across the pool; results depend only on the
+    // weights and the generation's seeds, never on which thread ran what
+    private void scoreAll(double[][] candidates, double[] scores) {
+
+        long[] seeds = new long[games];
+        for (int g = 0; g < games; g++) {
+            seeds[g] = rng.nextLong();
+        }
+        double[] results = new double[candidates.length * games];
+        pool.submit(() -> IntStream.range(0, results.length).parallel().forEach(task -> {
+            GameEngine engine = new GameEngine();
+            engine.reset(seeds[task % games]);
+            long pieces = new Bot(candidates[task / games], false).play(engine, maxPieces);
+            piecesPlayed.addAndGet(pieces);
+            results[task] = engine.getClearedLines() + SURVIVAL * pieces;
+        })).join();
+
+        for (int c = 0; c < candidates.length; c++) {
+            double sum = 0;
+            for (int g = 0; g < games; g++) {
+                sum += results[c * games + g];
+            }
+            scores[c] = sum / games;
+        }
+
+    }//end method scoreAll
+
+    private int tournament() {
+
+        int best = rng.nextInt(populationSize);
+        for (int k = 1; k < TOURNAMENT; k++) {
+            int i = rng.nextInt(populationSize);
+            if (fitness[i] > fitness[best]) {
+                best = i;
+            }
+        }
+        return best;
+
+    }//end method tournament
+
+    private int bestIndex() {
+
+        int best = 0;
+        for (int i = 1; i < populationSize; i++) {
+            if (fitness[i] > fitness[best]) {
+                best = i;
+            }
+        }
+        return best;
+
+    }//end method bestIndex
+
+    // Average of the parents weighted by their fitness
+    private static double[] crossover(double[] a, double fitnessA, double[] b, double fitnessB) {
+
+        double total = fitnessA + fitnessB;
+        double share = total > 0 ? fitnessA / total : 0.5;
+        double[] child = new double[Bot.FEATURES];
+        for (int f = 0; f < Bot.FEATURES; f++) {
+            child[f] = a[f] * share + b[f] * (1 - share);
+        }
+        normalize(child);
+        return child;
+
+    }//end method crossover
+
+    private double[] randomWeights() {
+
+        double[] weights = new double[Bot.FEATURES];
+        for (int f = 0; f < Bot.FEATURES; f++) {
+            weights[f] = nextDouble() * 2 - 1;
+        }
+        normalize(weights);
+        return weights;
+
+    }//end method randomWeights
+
+    // Only the direction of the weights matters to the bot, so keep them at unit length
+    private static void normalize(double[] weights) {
+
+        double length = 0;
+        for (double w : weights) {
+            length += w * w;
+        }
+        length = Math.sqrt(length);
+        if (length > 0) {
+            for (int f = 0; f < weights.length; f++) {
+                weights[f] /= length;
+            }
+        }
+
+    }//end method normalize
+
+    private double nextDouble() {
+        return (rng.nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    // Writes the whole run state to a temporary file, then swaps it in
+    private void save() throws IOException {
+
+        File tmp = new File(checkpoint.getPath() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            out.write(CHECKPOINT_HEADER + "\n");
+            out.write(generation + " " + rng.getState() + " " + populationSize + "\n");
+            for (int i = 0; i < populationSize; i++) {
+                StringBuilder line = new StringBuilder().append(fitness[i]);
+                for (double w : population[i]) {
+                    line.append(' ').append(w);
+                }
+                out.write(line.append('\n').toString());
+            }
+        }
+        Files.move(tmp.toPath(), checkpoint.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    }//end method save
+
+    private void load() throws IOException {
+
+        Checkpoint saved = Checkpoint.read(checkpoint);
+        if (saved.population.length != populationSize) {
+            throw new IOException(checkpoint + " has a population of " + saved.population.length);
+        }
+        generation = saved.generation;
+        rng.setState(saved.rngState);
+        population = saved.population;
+        fitness = saved.fitness;
+
+    }//end method load
+
+    // The fittest weights in a checkpoint, for the bot to play with
+    static double[] bestWeights(File checkpoint) throws IOException {
+
+        Checkpoint saved = Checkpoint.read(checkpoint);
+        int best = 0;
+        for (int i = 1; i < saved.fitness.length; i++) {
+            if (saved.fitness[i] > saved.fitness[best]) {
+                best = i;
+            }
+        }
+        return saved.population[best];
+
+    }//end method bestWeights
+
+    // A run state as save writes it
+    private static final class Checkpoint {
+        int generation;
+        long rngState;
+        double[] fitness;
+        double[][] population;
+
+        static Checkpoint read(File file) throws IOException {
+
+            Checkpoint saved = new Checkpoint();
+            try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                if (!CHECKPOINT_HEADER.equals(in.readLine())) {
+                    throw new IOException(file + " is not a tuner checkpoint");
+                }
+                String[] state = fields(in, 3, file);
+                saved.generation = Integer.parseInt(state[0]);
+                saved.rngState = Long.parseLong(state[1]);
+                int size = Integer.parseInt(state[2]);
+                if (size < 1) {
+                    throw new IOException(file + " has a population of " + size);
+                }
+                saved.fitness = new double[size];
+                saved.population = new double[size][Bot.FEATURES];
+                for (int i = 0; i < size; i++) {
+                    String[] candidate = fields(in, 1 + Bot.FEATURES, file);
+                    saved.fitness[i] = Double.parseDouble(candidate[0]);
+                    for (int f = 0; f < Bot.FEATURES; f++) {
+                        saved.population[i][f] = Double.parseDouble(candidate[f + 1]);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException(file + " is damaged, " + e.getMessage());
+            }
+            return saved;
+
+        }//end method read
+
+        // The next line split on spaces, which must hold exactly count fields
+        private static String[] fields(BufferedReader in, int count, File file) throws IOException {
+
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException(file + " is cut short");
+            }
+            String[] fields = line.split(" ");
+            if (fields.length != count) {
+                throw new IOException(file + " is damaged, expected " + count + " fields in: " + line);
+            }
+            return fields;
+
+        }//end method fields
+    }
+
+    // e.g. java game.WeightTuner tuner.txt 50 1 100 10 500 32
+    // checkpoint file, generations, seed, population, games per candidate, max pieces per game, threads
+    public static void main(String[] args) throws IOException {
+
+        File checkpoint = new File(args.length > 0 ? args[0] : "tuner.txt");
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        int populationSize = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int games = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+        long maxPieces = args.length > 5 ? Long.parseLong(args[5]) : 500;
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors();
+
+        new WeightTuner(seed, populationSize, games, maxPieces, threads, checkpoint).run(generations);
+
+    }//end method main
+
+}//end class WeightTuner